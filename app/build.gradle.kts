@@ -22,6 +22,13 @@ android {
             isMinifyEnabled = false
             proguardFiles(getDefaultProguardFile("proguard-android-optimize.txt"), "proguard-rules.pro")
         }
+        // Como release pero firmada con la clave de debug; la usa el módulo :benchmark
+        create("benchmark") {
+            initWith(getByName("release"))
+            signingConfig = signingConfigs.getByName("debug")
+            matchingFallbacks += listOf("release")
+            isDebuggable = false
+        }
     }
     compileOptions {
         sourceCompatibility = JavaVersion.VERSION_11
@@ -29,6 +36,8 @@ android {
     }
     buildFeatures {
         viewBinding = true
+        // DebugLog usa BuildConfig.DEBUG para eliminar los logs en release
+        buildConfig = true
     }
 }
 
@@ -39,8 +48,16 @@ dependencies {
     implementation("androidx.constraintlayout:constraintlayout:2.1.4")
     implementation("androidx.lifecycle:lifecycle-livedata-ktx:2.6.1")
     implementation("androidx.lifecycle:lifecycle-viewmodel-ktx:2.6.1")
+    implementation("androidx.lifecycle:lifecycle-process:2.6.1")
     implementation("androidx.navigation:navigation-fragment:2.6.0")
     implementation("androidx.navigation:navigation-ui:2.6.0")
+    // Pre-inflado en segundo plano de las filas de mensajes
+    implementation("androidx.asynclayoutinflater:asynclayoutinflater:1.0.0")
+
+    // Cola persistente de envíos: diario local (Room) y trabajo en segundo plano (WorkManager)
+    implementation("androidx.room:room-runtime:2.6.1")
+    annotationProcessor("androidx.room:room-compiler:2.6.1")
+    implementation("androidx.work:work-runtime:2.9.0")
     testImplementation("junit:junit:4.13.2")
     androidTestImplementation("androidx.test.ext:junit:1.1.5")
     androidTestImplementation("androidx.test.espresso:espresso-core:3.5.1")
@@ -18,4 +18,13 @@
 
 # If you keep the line number information, uncomment this to
 # hide the original source file name.
-#-renamesourcefileattribute SourceFile
\ No newline at end of file
+#-renamesourcefileattribute SourceFile
+# Logs de depuración: fuera en release (ver utils/DebugLog)
+-assumenosideeffects class com.example.application.utils.DebugLog {
+    public static void d(...);
+    public static void v(...);
+}
+-assumenosideeffects class android.util.Log {
+    public static int d(...);
+    public static int v(...);
+}
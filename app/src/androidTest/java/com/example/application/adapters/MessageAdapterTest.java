@@ -0,0 +1,174 @@
+package com.example.application.adapters;
+
+import android.content.Context;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.bumptech.glide.Glide;
+import com.example.application.models.Message;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Un mensaje nuevo llega a MessageAdapter como un delta: una inserción y un solo
+ * bind (el de su fila), sin notifyDataSetChanged ni rebind de las filas visibles.
+ */
+@RunWith(AndroidJUnit4.class)
+public class MessageAdapterTest {
+
+    private static final String ME = "alice";
+    private static final String PEER = "bob";
+    private static final long MINUTE = 60_000L;
+
+    private Context context;
+    private RecyclerView recyclerView;
+    private CountingAdapter adapter;
+    private RecordingObserver observer;
+    private long dayStart;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(2024, Calendar.JANUARY, 15, 10, 0, 0);
+        dayStart = calendar.getTimeInMillis();
+
+        List<Message> messages = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            messages.add(message("m" + i, i % 2 == 0 ? ME : PEER, dayStart + i * MINUTE));
+        }
+
+        runOnMainSync(() -> {
+            recyclerView = new RecyclerView(context);
+            recyclerView.setLayoutManager(new LinearLayoutManager(context));
+            // Sin animaciones los binds de cada pasada de layout son deterministas
+            recyclerView.setItemAnimator(null);
+            adapter = new CountingAdapter(Glide.with(context));
+            adapter.updateMessages(messages);
+            recyclerView.setAdapter(adapter);
+            layout();
+
+            observer = new RecordingObserver();
+            adapter.registerAdapterDataObserver(observer);
+            adapter.binds = 0;
+        });
+    }
+
+    @Test
+    public void appendSameDay_insertsAndBindsOneRow() {
+        runOnMainSync(() -> {
+            // Separador + 5 mensajes: el nuevo va en la posición 6
+            adapter.addMessage(message("m5", PEER, dayStart + 5 * MINUTE));
+            layout();
+        });
+
+        assertEquals(Arrays.asList("inserted 6 1"), observer.events);
+        assertEquals(1, adapter.binds);
+        assertEquals(7, adapter.getItemCount());
+    }
+
+    @Test
+    public void appendNextDay_insertsSeparatorAndMessage() {
+        runOnMainSync(() -> {
+            adapter.addMessage(message("m5", PEER, dayStart + 24 * 60 * MINUTE));
+            layout();
+        });
+
+        assertEquals(Arrays.asList("inserted 6 2"), observer.events);
+        // Las dos filas nuevas y ninguna de las que ya estaban
+        assertEquals(2, adapter.binds);
+    }
+
+    @Test
+    public void appendExistingMessage_rebindsOnlyThatRow() {
+        runOnMainSync(() -> {
+            Message confirmed = message("m4", ME, dayStart + 4 * MINUTE);
+            adapter.addMessage(confirmed);
+            layout();
+        });
+
+        assertEquals(Arrays.asList("changed 5 null"), observer.events);
+        assertEquals(1, adapter.binds);
+    }
+
+    // Pantalla alta: todas las filas quedan a la vista y enlazadas
+    private void layout() {
+        recyclerView.measure(
+                View.MeasureSpec.makeMeasureSpec(1080, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(10_000, View.MeasureSpec.EXACTLY));
+        recyclerView.layout(0, 0, 1080, 10_000);
+    }
+
+    private static void runOnMainSync(Runnable runnable) {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(runnable);
+    }
+
+    private static Message message(String id, String senderId, long time) {
+        Message message = new Message("Mensaje " + id, senderId, senderId, new Date(time));
+        message.setMessageId(id);
+        message.setType("text");
+        return message;
+    }
+
+    private static class CountingAdapter extends MessageAdapter {
+        int binds;
+
+        CountingAdapter(com.bumptech.glide.RequestManager glide) {
+            super(ME, glide);
+        }
+
+        @Override
+        public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position,
+                                     @NonNull List<Object> payloads) {
+            binds++;
+            super.onBindViewHolder(holder, position, payloads);
+        }
+    }
+
+    // Anota cada notificación como texto para comparar la secuencia completa
+    private static class RecordingObserver extends RecyclerView.AdapterDataObserver {
+        final List<String> events = new ArrayList<>();
+
+        @Override
+        public void onChanged() {
+            events.add("dataSetChanged");
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount, @Nullable Object payload) {
+            events.add("changed " + positionStart + " " + payload);
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            events.add("inserted " + positionStart + " " + itemCount);
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            events.add("removed " + positionStart + " " + itemCount);
+        }
+
+        @Override
+        public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+            events.add("moved " + fromPosition + " " + toPosition);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.application.utils;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Color;
+import android.media.ExifInterface;
+import android.net.Uri;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compresión real en el dispositivo: una foto de 12 MP con orientación EXIF sale
+ * reducida, girada y con una vista previa que cabe en el límite de firestore.rules.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ImageCompressorInstrumentedTest {
+
+    // Foto apaisada de 12 MP, como la de una cámara de móvil
+    private static final int FIXTURE_WIDTH = 4000;
+    private static final int FIXTURE_HEIGHT = 3000;
+    // Límite de imagePreview en firestore.rules
+    private static final int MAX_PREVIEW_BYTES = 4096;
+    private static final int MAX_IMAGE_BYTES = 1024 * 1024;
+
+    private Context context;
+    private File fixture;
+
+    @Before
+    public void setUp() throws IOException {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        fixture = new File(context.getCacheDir(), "compressor_fixture.jpg");
+        writeFixture(fixture);
+    }
+
+    @After
+    public void tearDown() {
+        fixture.delete();
+    }
+
+    @Test
+    public void largePhoto_isScaledToMaxDimension() throws IOException {
+        ImageCompressor.Result result = compressFixture(ExifInterface.ORIENTATION_NORMAL);
+
+        assertEquals(ImageCompressor.MAX_DIMENSION, result.width);
+        assertEquals(ImageCompressor.MAX_DIMENSION * FIXTURE_HEIGHT / FIXTURE_WIDTH, result.height);
+        assertDecodesTo(result.data, result.width, result.height);
+        assertTrue("Imagen de " + result.data.length + " bytes",
+                result.data.length < MAX_IMAGE_BYTES && result.data.length < fixture.length());
+    }
+
+    @Test
+    public void exifRotation_isApplied() throws IOException {
+        ImageCompressor.Result result = compressFixture(ExifInterface.ORIENTATION_ROTATE_90);
+
+        // Girada 90°: queda vertical
+        assertEquals(ImageCompressor.MAX_DIMENSION * FIXTURE_HEIGHT / FIXTURE_WIDTH, result.width);
+        assertEquals(ImageCompressor.MAX_DIMENSION, result.height);
+
+        // La mitad izquierda (roja) de la foto pasa arriba y la derecha (azul) abajo
+        Bitmap bitmap = BitmapFactory.decodeByteArray(result.data, 0, result.data.length);
+        assertNotNull(bitmap);
+        int top = averageColor(bitmap, bitmap.getWidth() / 2, bitmap.getHeight() / 4);
+        int bottom = averageColor(bitmap, bitmap.getWidth() / 2, bitmap.getHeight() * 3 / 4);
+        assertTrue("Arriba " + Integer.toHexString(top), Color.red(top) > Color.blue(top) + 100);
+        assertTrue("Abajo " + Integer.toHexString(bottom), Color.blue(bottom) > Color.red(bottom) + 100);
+        bitmap.recycle();
+    }
+
+    @Test
+    public void thumbnailAndPreview_areSmall() throws IOException {
+        ImageCompressor.Result result = compressFixture(ExifInterface.ORIENTATION_NORMAL);
+
+        assertDecodesTo(result.thumbnail, ImageCompressor.THUMBNAIL_DIMENSION,
+                ImageCompressor.THUMBNAIL_DIMENSION * FIXTURE_HEIGHT / FIXTURE_WIDTH);
+        assertDecodesTo(result.preview, ImageCompressor.PREVIEW_DIMENSION,
+                ImageCompressor.PREVIEW_DIMENSION * FIXTURE_HEIGHT / FIXTURE_WIDTH);
+        assertTrue("Vista previa de " + result.preview.length + " bytes",
+                result.preview.length <= MAX_PREVIEW_BYTES);
+        assertTrue(result.thumbnail.length < result.data.length);
+    }
+
+    private ImageCompressor.Result compressFixture(int orientation) throws IOException {
+        ExifInterface exif = new ExifInterface(fixture.getAbsolutePath());
+        exif.setAttribute(ExifInterface.TAG_ORIENTATION, String.valueOf(orientation));
+        exif.saveAttributes();
+        return ImageCompressor.compress(context.getContentResolver(), Uri.fromFile(fixture),
+                ImageCompressor.MAX_DIMENSION, ImageCompressor.QUALITY);
+    }
+
+    // Mitad izquierda roja y derecha azul, con ruido para que no se comprima casi a nada
+    private static void writeFixture(File file) throws IOException {
+        Bitmap bitmap = Bitmap.createBitmap(FIXTURE_WIDTH, FIXTURE_HEIGHT, Bitmap.Config.ARGB_8888);
+        Random random = new Random(42);
+        int[] row = new int[FIXTURE_WIDTH];
+        for (int y = 0; y < FIXTURE_HEIGHT; y++) {
+            for (int x = 0; x < FIXTURE_WIDTH; x++) {
+                int noise = random.nextInt(40);
+                row[x] = x < FIXTURE_WIDTH / 2
+                        ? Color.rgb(215 + noise, noise, noise)
+                        : Color.rgb(noise, noise, 215 + noise);
+            }
+            bitmap.setPixels(row, 0, FIXTURE_WIDTH, 0, y, FIXTURE_WIDTH, 1);
+        }
+        try (OutputStream output = new FileOutputStream(file)) {
+            bitmap.compress(Bitmap.CompressFormat.JPEG, 95, output);
+        }
+        bitmap.recycle();
+    }
+
+    private static void assertDecodesTo(byte[] data, int width, int height) {
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(data, 0, data.length, bounds);
+        assertEquals(width, bounds.outWidth);
+        assertEquals(height, bounds.outHeight);
+    }
+
+    // Media de un bloque de 21x21 píxeles: el ruido y la compresión no la mueven
+    private static int averageColor(Bitmap bitmap, int centerX, int centerY) {
+        int red = 0;
+        int green = 0;
+        int blue = 0;
+        int count = 0;
+        for (int y = centerY - 10; y <= centerY + 10; y++) {
+            for (int x = centerX - 10; x <= centerX + 10; x++) {
+                int pixel = bitmap.getPixel(x, y);
+                red += Color.red(pixel);
+                green += Color.green(pixel);
+                blue += Color.blue(pixel);
+                count++;
+            }
+        }
+        return Color.rgb(red / count, green / count, blue / count);
+    }
+}
@@ -10,27 +10,29 @@ import android.widget.Toast;
 
 import androidx.activity.result.ActivityResultLauncher;
 import androidx.activity.result.contract.ActivityResultContracts;
+import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.bumptech.glide.Glide;
 import com.example.application.adapters.MessageAdapter;
+import com.example.application.adapters.MessageViewPool;
 import com.example.application.models.Message;
+import com.example.application.repositories.ChatMessageSource;
+import com.example.application.repositories.UserRepository;
+import com.example.application.services.ImageUploadQueue;
+import com.example.application.services.MessageOutbox;
+import com.example.application.utils.DebugLog;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.ListenerRegistration;
-import com.google.firebase.firestore.Query;
-import com.google.firebase.storage.FirebaseStorage;
-import com.google.firebase.storage.StorageReference;
 
-import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
 
 public class ChatActivity extends AppCompatActivity {
 
@@ -45,12 +47,15 @@ public class ChatActivity extends AppCompatActivity {
     private MessageAdapter messageAdapter;
     private FirebaseFirestore db;
     private FirebaseAuth mAuth;
-    private FirebaseStorage storage;
-    private ListenerRegistration messagesListener;
-    
-    private android.os.Handler heartbeatHandler;
-    private Runnable heartbeatRunnable;
-    private static final long HEARTBEAT_INTERVAL = 3000; // 3 segundos
+    private ChatMessageSource messageSource;
+    private ListenerRegistration chatListener;
+    private final MessageOutbox.FailureListener outboxFailureListener = (failedChatId, messageId) -> {
+        if (failedChatId.equals(chatId)) {
+            messageAdapter.markFailed(messageId);
+        }
+    };
+    private boolean resumed;
+    private static final int LOAD_OLDER_THRESHOLD = 5;
 
     private String chatId;
     private String otherUserId;
@@ -69,7 +74,6 @@ public class ChatActivity extends AppCompatActivity {
         // Inicializar Firebase
         db = FirebaseFirestore.getInstance();
         mAuth = FirebaseAuth.getInstance();
-        storage = FirebaseStorage.getInstance();
         currentUserId = mAuth.getCurrentUser().getUid();
 
         // Inicializar selector de imágenes
@@ -102,8 +106,14 @@ public class ChatActivity extends AppCompatActivity {
         // Configurar RecyclerView
         LinearLayoutManager layoutManager = new LinearLayoutManager(this);
         layoutManager.setStackFromEnd(true); // Mostrar mensajes desde abajo
+        // Al cerrar el chat las filas vuelven al pool compartido en vez de descartarse
+        layoutManager.setRecycleChildrenOnDetach(true);
         messagesRecyclerView.setLayoutManager(layoutManager);
-        messageAdapter = new MessageAdapter(currentUserId);
+        messagesRecyclerView.setRecycledViewPool(MessageViewPool.getInstance(this).getRecycledViewPool());
+        // El tamaño lo fija el layout, no el contenido: los cambios de datos no piden re-medir
+        messagesRecyclerView.setHasFixedSize(true);
+        // Las cargas de imágenes se atan al ciclo de vida de esta actividad
+        messageAdapter = new MessageAdapter(currentUserId, Glide.with(this));
         messagesRecyclerView.setAdapter(messageAdapter);
 
         // Cargar nombre del usuario actual
@@ -124,15 +134,13 @@ public class ChatActivity extends AppCompatActivity {
 
         // Cargar mensajes
         loadMessages();
-        // Marcar mensajes como leídos inmediatamente
-        markAllMessagesAsRead();
+        listenPeerReadWatermark();
     }
     
     @Override
     protected void onResume() {
         super.onResume();
-        // Iniciar heartbeat
-        startHeartbeat();
+        resumed = true;
         // Marcar mensajes como leídos cada vez que el usuario vuelve a la actividad
         markAllMessagesAsRead();
     }
@@ -140,181 +148,133 @@ public class ChatActivity extends AppCompatActivity {
     @Override
     protected void onPause() {
         super.onPause();
-        // Detener heartbeat
-        stopHeartbeat();
-    }
-    
-    private void startHeartbeat() {
-        if (heartbeatHandler == null) {
-            heartbeatHandler = new android.os.Handler();
-        }
-        
-        stopHeartbeat();
-        
-        heartbeatRunnable = new Runnable() {
-            @Override
-            public void run() {
-                updateHeartbeat();
-                heartbeatHandler.postDelayed(this, HEARTBEAT_INTERVAL);
-            }
-        };
-        
-        heartbeatHandler.post(heartbeatRunnable);
+        resumed = false;
     }
     
-    private void stopHeartbeat() {
-        if (heartbeatHandler != null && heartbeatRunnable != null) {
-            heartbeatHandler.removeCallbacks(heartbeatRunnable);
-        }
-    }
-    
-    private void updateHeartbeat() {
-        if (currentUserId != null) {
-            Map<String, Object> heartbeatData = new HashMap<>();
-            heartbeatData.put("online", true);
-            heartbeatData.put("lastSeen", com.google.firebase.Timestamp.now());
-            
-            db.collection("users")
-                    .document(currentUserId)
-                    .update(heartbeatData)
-                    .addOnFailureListener(e -> {
-                        db.collection("users")
-                                .document(currentUserId)
-                                .set(heartbeatData, com.google.firebase.firestore.SetOptions.merge());
-                    });
-        }
-    }
-    
-    private void setUserOffline() {
-        if (currentUserId != null) {
-            Map<String, Object> offlineData = new HashMap<>();
-            offlineData.put("online", false);
-            offlineData.put("lastSeen", com.google.firebase.Timestamp.now());
-            
-            db.collection("users")
-                    .document(currentUserId)
-                    .update(offlineData)
-                    .addOnFailureListener(e -> {
-                        db.collection("users")
-                                .document(currentUserId)
-                                .set(offlineData, com.google.firebase.firestore.SetOptions.merge());
-                    });
-        }
-    }
-
     private void loadCurrentUserName() {
-        db.collection("users").document(currentUserId)
-                .get()
-                .addOnSuccessListener(documentSnapshot -> {
-                    if (documentSnapshot.exists()) {
-                        currentUserName = documentSnapshot.getString("name");
-                    }
-                });
+        UserRepository.getInstance(this).get(currentUserId, user -> {
+            if (user != null) {
+                currentUserName = user.getName();
+            }
+        });
     }
 
     private void loadMessages() {
-        messagesListener = db.collection("chats")
-                .document(chatId)
-                .collection("messages")
-                .orderBy("timestamp", Query.Direction.ASCENDING)
-                .addSnapshotListener((queryDocumentSnapshots, error) -> {
-                    if (error != null) {
-                        Toast.makeText(this, "Error al cargar mensajes", Toast.LENGTH_SHORT).show();
+        messageSource = new ChatMessageSource(this, db, chatId, new ChatMessageSource.Callback() {
+            @Override
+            public void onInitialPage(List<Message> messages) {
+                messageAdapter.updateMessages(messages);
+                scrollToBottom();
+                // Mensajes propios que aún esperan en la cola de salida
+                MessageOutbox.getInstance(ChatActivity.this).loadPending(chatId, pending -> {
+                    if (isDestroyed()) {
                         return;
                     }
-
-                    if (queryDocumentSnapshots != null) {
-                        List<Message> messages = new ArrayList<>();
-                        for (DocumentSnapshot doc : queryDocumentSnapshots.getDocuments()) {
-                            Message message = new Message();
-                            message.setMessageId(doc.getId());
-                            message.setText(doc.getString("text"));
-                            message.setSenderId(doc.getString("senderId"));
-                            message.setSenderName(doc.getString("senderName"));
-                            
-                            com.google.firebase.Timestamp timestamp = doc.getTimestamp("timestamp");
-                            if (timestamp != null) {
-                                message.setTimestamp(timestamp.toDate());
-                            }
-                            
-                            Boolean read = doc.getBoolean("read");
-                            message.setRead(read != null ? read : false);
-                            
-                            // Cargar campos de imagen
-                            String type = doc.getString("type");
-                            message.setType(type != null ? type : "text");
-                            message.setImageUrl(doc.getString("imageUrl"));
-                            
-                            // Log para depuración
-                            android.util.Log.d("ChatActivity", "Mensaje cargado - Type: " + message.getType() + ", ImageUrl: " + message.getImageUrl());
-                            
-                            messages.add(message);
-                        }
-                        messageAdapter.updateMessages(messages);
-                        if (messages.size() > 0) {
-                            // Usar post para asegurar que el RecyclerView se actualice primero
-                            final int lastPosition = messageAdapter.getItemCount() - 1;
-                            messagesRecyclerView.post(() -> {
-                                messagesRecyclerView.smoothScrollToPosition(lastPosition);
-                                // Scroll adicional después de 300ms para asegurar que las imágenes se carguen
-                                messagesRecyclerView.postDelayed(() -> {
-                                    messagesRecyclerView.smoothScrollToPosition(lastPosition);
-                                }, 300);
-                            });
+                    for (Message message : pending) {
+                        // Si ya llegó por el listener, la copia del servidor manda
+                        if (!messageAdapter.hasMessage(message.getMessageId())) {
+                            messageAdapter.addMessage(message);
                         }
                     }
+                    if (!pending.isEmpty()) {
+                        scrollToBottom();
+                    }
                 });
+            }
+
+            @Override
+            public void onOlderPage(List<Message> messages) {
+                // Las filas visibles no se vuelven a enlazar; el LayoutManager mantiene la posición
+                messageAdapter.prependMessages(messages);
+            }
+
+            @Override
+            public void onMessageAdded(Message message) {
+                messageAdapter.addMessage(message);
+                scrollToBottom();
+                // Un mensaje recibido con el chat en pantalla ya está leído
+                if (resumed && otherUserId != null && otherUserId.equals(message.getSenderId())) {
+                    markAllMessagesAsRead();
+                }
+            }
+
+            @Override
+            public void onMessageModified(Message message) {
+                messageAdapter.updateMessage(message);
+            }
+
+            @Override
+            public void onMessageRemoved(String messageId) {
+                messageAdapter.removeMessage(messageId);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Toast.makeText(ChatActivity.this, "Error al cargar mensajes", Toast.LENGTH_SHORT).show();
+            }
+        });
+        messageSource.start();
+        MessageOutbox.getInstance(this).addFailureListener(outboxFailureListener);
+
+        // Pedir la página anterior al acercarse al principio de la conversación
+        messagesRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (dy >= 0 || !messageSource.hasMoreOlder()) {
+                    return;
+                }
+                LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+                if (layoutManager != null && layoutManager.findFirstVisibleItemPosition() <= LOAD_OLDER_THRESHOLD) {
+                    messageSource.loadOlder();
+                }
+            }
+        });
+    }
+
+    private void scrollToBottom() {
+        if (messageAdapter.getItemCount() == 0) {
+            return;
+        }
+        // Usar post para asegurar que el RecyclerView se actualice primero
+        final int lastPosition = messageAdapter.getItemCount() - 1;
+        messagesRecyclerView.post(() -> {
+            messagesRecyclerView.smoothScrollToPosition(lastPosition);
+            // Scroll adicional después de 300ms para asegurar que las imágenes se carguen
+            messagesRecyclerView.postDelayed(() -> {
+                messagesRecyclerView.smoothScrollToPosition(lastPosition);
+            }, 300);
+        });
     }
     
-    // Marcar todos los mensajes no leídos del otro usuario como leídos
+    // Marcar la conversación como leída: una sola escritura con la marca de lectura
+    // (lastReadAt) y el contador de no leídos a cero, sin tocar los mensajes
     private void markAllMessagesAsRead() {
         if (chatId == null || otherUserId == null) {
             return;
         }
         
-        // Obtener todos los mensajes del otro usuario
+        Map<String, Object> readUpdate = new HashMap<>();
+        readUpdate.put("lastReadAt." + currentUserId, com.google.firebase.firestore.FieldValue.serverTimestamp());
+        readUpdate.put("unreadCount." + currentUserId, 0);
+        
         db.collection("chats")
                 .document(chatId)
-                .collection("messages")
-                .whereEqualTo("senderId", otherUserId)
-                .get()
-                .addOnSuccessListener(queryDocumentSnapshots -> {
-                    if (queryDocumentSnapshots.isEmpty()) {
-                        android.util.Log.d("ChatActivity", "No hay mensajes del otro usuario");
+                .update(readUpdate)
+                .addOnFailureListener(e -> {
+                    android.util.Log.e("ChatActivity", "❌ Error al marcar mensajes como leídos: " + e.getMessage(), e);
+                });
+    }
+
+    // Escuchar la marca de lectura del otro usuario para pintar los ticks de leído
+    private void listenPeerReadWatermark() {
+        chatListener = db.collection("chats")
+                .document(chatId)
+                .addSnapshotListener((snapshot, error) -> {
+                    if (error != null || snapshot == null || !snapshot.exists()) {
                         return;
                     }
-                    
-                    // Usar WriteBatch para actualizar múltiples documentos en una sola operación
-                    com.google.firebase.firestore.WriteBatch batch = db.batch();
-                    int unreadCount = 0;
-                    
-                    for (DocumentSnapshot doc : queryDocumentSnapshots.getDocuments()) {
-                        Boolean read = doc.getBoolean("read");
-                        // Si el campo 'read' no existe o es false, agregarlo al batch
-                        if (read == null || !read) {
-                            batch.update(doc.getReference(), "read", true);
-                            unreadCount++;
-                            android.util.Log.d("ChatActivity", "Agregando al batch mensaje: " + doc.getId());
-                        }
-                    }
-                    
-                    // Ejecutar el batch solo si hay mensajes para actualizar
-                    if (unreadCount > 0) {
-                        final int finalUnreadCount = unreadCount;
-                        batch.commit()
-                                .addOnSuccessListener(aVoid -> {
-                                    android.util.Log.d("ChatActivity", "✅ " + finalUnreadCount + " mensajes marcados como leídos exitosamente");
-                                })
-                                .addOnFailureListener(e -> {
-                                    android.util.Log.e("ChatActivity", "❌ Error al marcar mensajes como leídos: " + e.getMessage(), e);
-                                    Toast.makeText(this, "Error al marcar mensajes como leídos", Toast.LENGTH_SHORT).show();
-                                });
-                    } else {
-                        android.util.Log.d("ChatActivity", "No hay mensajes sin leer");
-                    }
-                })
-                .addOnFailureListener(e -> {
-                    android.util.Log.e("ChatActivity", "Error al obtener mensajes: " + e.getMessage(), e);
+                    com.google.firebase.Timestamp lastReadAt = snapshot.getTimestamp("lastReadAt." + otherUserId);
+                    messageAdapter.setPeerLastReadAt(lastReadAt != null ? lastReadAt.toDate() : null);
                 });
     }
 
@@ -325,37 +285,12 @@ public class ChatActivity extends AppCompatActivity {
             return;
         }
 
-        // Crear mensaje
-        Map<String, Object> message = new HashMap<>();
-        message.put("text", messageText);
-        message.put("senderId", currentUserId);
-        message.put("senderName", currentUserName != null ? currentUserName : "Usuario");
-        message.put("timestamp", com.google.firebase.firestore.FieldValue.serverTimestamp());
-        message.put("read", false);
-        message.put("type", "text");  // Agregar tipo de mensaje
-        message.put("imageUrl", null); // No hay imagen en mensajes de texto
-
-        // Guardar mensaje en Firestore
-        db.collection("chats")
-                .document(chatId)
-                .collection("messages")
-                .add(message)
-                .addOnSuccessListener(documentReference -> {
-                    // Actualizar el último mensaje en el chat
-                    Map<String, Object> chatUpdate = new HashMap<>();
-                    chatUpdate.put("lastMessage", messageText);
-                    chatUpdate.put("lastMessageTime", com.google.firebase.firestore.FieldValue.serverTimestamp());
-                    chatUpdate.put("lastMessageSenderId", currentUserId);
-
-                    db.collection("chats").document(chatId).update(chatUpdate);
-
-                    // Limpiar campo de texto
-                    messageEditText.setText("");
-                })
-                .addOnFailureListener(e -> {
-                    Toast.makeText(this, "Error al enviar mensaje", Toast.LENGTH_SHORT).show();
-                    android.util.Log.e("ChatActivity", "Error al enviar mensaje de texto", e);
-                });
+        // Se muestra al momento como pendiente; la cola lo envía en segundo plano
+        Message pendingMessage = MessageOutbox.getInstance(this)
+                .send(chatId, otherUserId, currentUserId, currentUserName, messageText);
+        messageAdapter.addMessage(pendingMessage);
+        messageEditText.setText("");
+        scrollToBottom();
     }
 
     private String getInitials(String name) {
@@ -377,88 +312,30 @@ public class ChatActivity extends AppCompatActivity {
     }
 
     private void uploadImageAndSendMessage(Uri imageUri) {
-        // Mostrar indicador de carga
-        sendButton.setEnabled(false);
-        attachImageButton.setEnabled(false);
-
-        // Crear referencia única para la imagen
-        String imageId = UUID.randomUUID().toString();
-        StorageReference imageRef = storage.getReference()
-                .child("chat_images")
-                .child(currentUserId)
-                .child(imageId + ".jpg");
-
-        // Subir imagen
-        imageRef.putFile(imageUri)
-                .addOnSuccessListener(taskSnapshot -> {
-                    // Obtener URL de descarga
-                    imageRef.getDownloadUrl().addOnSuccessListener(uri -> {
-                        String imageUrl = uri.toString();
-                        sendImageMessage(imageUrl);
-                    }).addOnFailureListener(e -> {
-                        Toast.makeText(this, "Error al obtener URL de imagen", Toast.LENGTH_SHORT).show();
-                        sendButton.setEnabled(true);
-                        attachImageButton.setEnabled(true);
-                    });
-                })
-                .addOnFailureListener(e -> {
-                    Toast.makeText(this, "Error al subir imagen", Toast.LENGTH_SHORT).show();
-                    sendButton.setEnabled(true);
-                    attachImageButton.setEnabled(true);
-                });
-    }
-
-    private void sendImageMessage(String imageUrl) {
-        if (currentUserName == null) {
-            Toast.makeText(this, "Cargando información del usuario...", Toast.LENGTH_SHORT).show();
-            return;
-        }
-
-        android.util.Log.d("ChatActivity", "Enviando mensaje de imagen con URL: " + imageUrl);
-
-        Map<String, Object> messageData = new HashMap<>();
-        messageData.put("text", "");
-        messageData.put("senderId", currentUserId);
-        messageData.put("senderName", currentUserName);
-        messageData.put("timestamp", com.google.firebase.Timestamp.now());
-        messageData.put("read", false);
-        messageData.put("type", "image");
-        messageData.put("imageUrl", imageUrl);
+        // La cola comprime, sube y publica el mensaje en segundo plano, aunque se cierre la actividad
+        ImageUploadQueue.getInstance(this).enqueue(chatId, otherUserId, currentUserId, currentUserName,
+                imageUri, new ImageUploadQueue.Callback() {
+                    @Override
+                    public void onQueued() {
+                        if (DebugLog.ENABLED) DebugLog.d("ChatActivity", "Imagen encolada para enviar");
+                    }
 
-        db.collection("chats")
-                .document(chatId)
-                .collection("messages")
-                .add(messageData)
-                .addOnSuccessListener(documentReference -> {
-                    // Actualizar último mensaje del chat
-                    Map<String, Object> chatUpdate = new HashMap<>();
-                    chatUpdate.put("lastMessage", "📷 Imagen");
-                    chatUpdate.put("lastMessageTime", com.google.firebase.Timestamp.now());
-                    chatUpdate.put("lastMessageSenderId", currentUserId);
-
-                    db.collection("chats")
-                            .document(chatId)
-                            .update(chatUpdate);
-
-                    // Habilitar botones nuevamente
-                    sendButton.setEnabled(true);
-                    attachImageButton.setEnabled(true);
-                })
-                .addOnFailureListener(e -> {
-                    Toast.makeText(this, "Error al enviar imagen", Toast.LENGTH_SHORT).show();
-                    sendButton.setEnabled(true);
-                    attachImageButton.setEnabled(true);
+                    @Override
+                    public void onError(Exception e) {
+                        Toast.makeText(getApplicationContext(), "Error al procesar imagen", Toast.LENGTH_SHORT).show();
+                    }
                 });
     }
 
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        // Detener heartbeat y marcar offline
-        stopHeartbeat();
-        setUserOffline();
-        if (messagesListener != null) {
-            messagesListener.remove();
+        if (messageSource != null) {
+            messageSource.release();
+        }
+        if (chatListener != null) {
+            chatListener.remove();
         }
+        MessageOutbox.getInstance(this).removeFailureListener(outboxFailureListener);
     }
 }
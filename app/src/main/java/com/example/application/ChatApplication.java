@@ -0,0 +1,60 @@
+package com.example.application;
+
+import android.app.Application;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+
+import androidx.annotation.NonNull;
+import androidx.work.Configuration;
+
+import com.example.application.adapters.MessageViewPool;
+import com.example.application.services.ImageUploadQueue;
+import com.example.application.services.ImageUploadWorker;
+import com.example.application.services.MessageOutbox;
+import com.example.application.services.PresenceManager;
+import com.example.application.utils.DayKeys;
+
+import java.util.concurrent.Executors;
+
+public class ChatApplication extends Application implements Configuration.Provider {
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+
+        // Presencia online/offline para todo el proceso
+        PresenceManager.getInstance().install();
+
+        // Retomar los mensajes e imágenes que quedaron pendientes de enviar
+        MessageOutbox.getInstance(this).flushAsync();
+        ImageUploadQueue.getInstance(this).resumePending();
+
+        // Las claves de día y los formateadores cachean la zona horaria
+        registerReceiver(new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                DayKeys.invalidate();
+            }
+        }, new IntentFilter(Intent.ACTION_TIMEZONE_CHANGED));
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        // En segundo plano no hace falta guardar filas de mensajes
+        if (level >= TRIM_MEMORY_BACKGROUND) {
+            MessageViewPool.getInstance(this).clear();
+        }
+    }
+
+    // WorkManager se inicializa bajo demanda con un executor que limita las subidas simultáneas
+    @NonNull
+    @Override
+    public Configuration getWorkManagerConfiguration() {
+        return new Configuration.Builder()
+                .setExecutor(Executors.newFixedThreadPool(ImageUploadWorker.MAX_CONCURRENT_UPLOADS))
+                .build();
+    }
+}
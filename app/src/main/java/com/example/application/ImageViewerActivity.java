@@ -0,0 +1,42 @@
+package com.example.application;
+
+import android.os.Bundle;
+import android.widget.ImageButton;
+import android.widget.ImageView;
+
+import androidx.appcompat.app.AppCompatActivity;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.load.engine.DiskCacheStrategy;
+
+/**
+ * Muestra una imagen del chat a resolución completa. La miniatura, que ya está
+ * en la caché de Glide por la burbuja, se muestra mientras carga la completa.
+ */
+public class ImageViewerActivity extends AppCompatActivity {
+
+    public static final String EXTRA_IMAGE_URL = "imageUrl";
+    public static final String EXTRA_THUMBNAIL_URL = "thumbnailUrl";
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_image_viewer);
+
+        ImageView fullImageView = findViewById(R.id.fullImageView);
+        ImageButton backButton = findViewById(R.id.backButton);
+        backButton.setOnClickListener(v -> finish());
+
+        String imageUrl = getIntent().getStringExtra(EXTRA_IMAGE_URL);
+        String thumbnailUrl = getIntent().getStringExtra(EXTRA_THUMBNAIL_URL);
+
+        Glide.with(this)
+                .load(imageUrl)
+                .diskCacheStrategy(DiskCacheStrategy.ALL)
+                .thumbnail(Glide.with(this)
+                        .load(thumbnailUrl)
+                        .diskCacheStrategy(DiskCacheStrategy.ALL))
+                .error(R.drawable.ic_image_placeholder)
+                .into(fullImageView);
+    }
+}
@@ -19,6 +19,13 @@ import androidx.navigation.Navigation;
 import androidx.navigation.ui.AppBarConfiguration;
 import androidx.navigation.ui.NavigationUI;
 import com.example.application.databinding.ActivityMainBinding;
+import com.example.application.repositories.ChatListCache;
+import com.example.application.repositories.ChatMessageSource;
+import com.example.application.repositories.EmailLookupRepository;
+import com.example.application.services.ImageUploadQueue;
+import com.example.application.services.MessageOutbox;
+import com.example.application.services.PresenceManager;
+import com.example.application.utils.DebugLog;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.firestore.FirebaseFirestore;
@@ -31,9 +38,6 @@ public class MainActivity extends AppCompatActivity {
 
     private ActivityMainBinding binding;
     private FirebaseAuth mAuth;
-    private android.os.Handler heartbeatHandler;
-    private Runnable heartbeatRunnable;
-    private static final long HEARTBEAT_INTERVAL = 3000; // 3 segundos
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -74,115 +78,11 @@ public class MainActivity extends AppCompatActivity {
         // Solicitar permiso de notificaciones (Android 13+)
         requestNotificationPermission();
         
-        // Iniciar heartbeat para mantener online status
-        startHeartbeat();
-    }
-    
-    @Override
-    protected void onResume() {
-        super.onResume();
-        // Reiniciar heartbeat cuando volvemos a la app
-        startHeartbeat();
-        Log.d("MainActivity", "onResume - Heartbeat iniciado");
-    }
-    
-    @Override
-    protected void onStop() {
-        super.onStop();
-        // Detener heartbeat solo cuando la Activity ya no es visible
-        stopHeartbeat();
-        setUserOffline();
-        Log.d("MainActivity", "onStop - Heartbeat detenido y usuario offline");
-    }
-    
-    @Override
-    protected void onDestroy() {
-        super.onDestroy();
-        // Limpiar recursos y asegurar que heartbeat esté detenido
-        stopHeartbeat();
-        heartbeatHandler = null;
-        heartbeatRunnable = null;
-        Log.d("MainActivity", "onDestroy - Recursos limpiados");
-    }
-    
-    private void startHeartbeat() {
-        if (heartbeatHandler == null) {
-            heartbeatHandler = new android.os.Handler();
-        }
-        
-        // Detener cualquier heartbeat existente
-        stopHeartbeat();
+        // Publicar presencia ahora que hay un usuario autenticado
+        PresenceManager.getInstance().refresh();
         
-        heartbeatRunnable = new Runnable() {
-            @Override
-            public void run() {
-                updateHeartbeat();
-                heartbeatHandler.postDelayed(this, HEARTBEAT_INTERVAL);
-            }
-        };
-        
-        // Ejecutar inmediatamente y luego cada HEARTBEAT_INTERVAL
-        heartbeatHandler.post(heartbeatRunnable);
-    }
-    
-    private void stopHeartbeat() {
-        if (heartbeatHandler != null && heartbeatRunnable != null) {
-            heartbeatHandler.removeCallbacks(heartbeatRunnable);
-        }
-    }
-    
-    private void updateHeartbeat() {
-        // Verificar que la Activity aún está activa
-        if (isFinishing() || isDestroyed()) {
-            Log.d("MainActivity", "Activity finalizando, cancelando heartbeat");
-            stopHeartbeat();
-            return;
-        }
-        
-        FirebaseUser currentUser = mAuth.getCurrentUser();
-        if (currentUser != null) {
-            String userId = currentUser.getUid();
-            FirebaseFirestore db = FirebaseFirestore.getInstance();
-            
-            Map<String, Object> heartbeatData = new HashMap<>();
-            heartbeatData.put("online", true);
-            heartbeatData.put("lastSeen", com.google.firebase.Timestamp.now());
-            
-            db.collection("users")
-                    .document(userId)
-                    .update(heartbeatData)
-                    .addOnFailureListener(e -> {
-                        // Si falla update, intentar con set+merge
-                        if (!isFinishing() && !isDestroyed()) {
-                            db.collection("users")
-                                    .document(userId)
-                                    .set(heartbeatData, com.google.firebase.firestore.SetOptions.merge())
-                                    .addOnFailureListener(e2 -> 
-                                        Log.e("MainActivity", "❌ Error en heartbeat", e2));
-                        }
-                    });
-        }
-    }
-    
-    private void setUserOffline() {
-        FirebaseUser currentUser = mAuth.getCurrentUser();
-        if (currentUser != null) {
-            String userId = currentUser.getUid();
-            FirebaseFirestore db = FirebaseFirestore.getInstance();
-            
-            Map<String, Object> offlineData = new HashMap<>();
-            offlineData.put("online", false);
-            offlineData.put("lastSeen", com.google.firebase.Timestamp.now());
-            
-            db.collection("users")
-                    .document(userId)
-                    .update(offlineData)
-                    .addOnFailureListener(e -> {
-                        db.collection("users")
-                                .document(userId)
-                                .set(offlineData, com.google.firebase.firestore.SetOptions.merge());
-                    });
-        }
+        // Asegurar que el usuario se puede encontrar por email (usuarios anteriores al índice)
+        EmailLookupRepository.getInstance(this).ensureIndexed(currentUser.getUid(), currentUser.getEmail());
     }
     
     private void getFCMToken() {
@@ -195,8 +95,7 @@ public class MainActivity extends AppCompatActivity {
 
                     // Obtener el token
                     String token = task.getResult();
-                    Log.d("MainActivity", "FCM Token: " + token);
-                    
+
                     // Guardar el token en Firestore
                     saveFCMToken(token);
                 });
@@ -215,15 +114,17 @@ public class MainActivity extends AppCompatActivity {
             db.collection("users")
                     .document(userId)
                     .update(tokenData)
-                    .addOnSuccessListener(aVoid -> 
-                        Log.d("MainActivity", "Token FCM guardado exitosamente"))
+                    .addOnSuccessListener(aVoid -> {
+                        if (DebugLog.ENABLED) DebugLog.d("MainActivity", "Token FCM guardado exitosamente");
+                    })
                     .addOnFailureListener(e -> {
                         Log.e("MainActivity", "Error al actualizar token, intentando crear documento", e);
                         // Si el documento no existe, intentar crearlo con set merge
                         db.collection("users").document(userId)
                             .set(tokenData, com.google.firebase.firestore.SetOptions.merge())
-                            .addOnSuccessListener(aVoid2 -> 
-                                Log.d("MainActivity", "Token FCM guardado con merge"))
+                            .addOnSuccessListener(aVoid2 -> {
+                                if (DebugLog.ENABLED) DebugLog.d("MainActivity", "Token FCM guardado con merge");
+                            })
                             .addOnFailureListener(e2 -> 
                                 Log.e("MainActivity", "Error al guardar token con merge", e2));
                     });
@@ -293,7 +194,12 @@ public class MainActivity extends AppCompatActivity {
             }
             return true;
         } else if (itemId == R.id.action_logout) {
-            // Cerrar sesión
+            // Cerrar sesión (marcar offline antes de perder la autenticación)
+            PresenceManager.getInstance().goOffline();
+            ChatListCache.getInstance(this).clear();
+            ChatMessageSource.clearStore(this);
+            MessageOutbox.getInstance(this).clear();
+            ImageUploadQueue.getInstance(this).clear();
             mAuth.signOut();
             startActivity(new Intent(MainActivity.this, LoginActivity.class));
             finish();
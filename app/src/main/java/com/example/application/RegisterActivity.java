@@ -21,9 +21,11 @@ import androidx.core.graphics.drawable.DrawableCompat;
 
 import java.lang.reflect.Field;
 
+import com.example.application.repositories.EmailLookupRepository;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.WriteBatch;
 import com.google.firebase.Timestamp;
 
 import java.util.HashMap;
@@ -194,8 +196,12 @@ public class RegisterActivity extends AppCompatActivity {
         user.put("online", true); // Usuario en línea al registrarse
         user.put("lastSeen", Timestamp.now()); // Timestamp de última actividad
 
-        db.collection("users").document(userId)
-                .set(user)
+        // El documento del usuario y su entrada en el índice de emails se escriben juntos
+        WriteBatch batch = db.batch();
+        batch.set(db.collection("users").document(userId), user);
+        EmailLookupRepository.getInstance(this).addIndexWrite(batch, userId, name, email);
+
+        batch.commit()
                 .addOnSuccessListener(aVoid -> {
                     progressBar.setVisibility(View.GONE);
                     registerButton.setEnabled(true);
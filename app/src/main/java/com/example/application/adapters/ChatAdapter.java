@@ -7,29 +7,63 @@ import android.view.ViewGroup;
 import android.widget.TextView;
 import androidx.annotation.NonNull;
 import androidx.cardview.widget.CardView;
-import androidx.recyclerview.widget.RecyclerView;
+import androidx.recyclerview.widget.AsyncDifferConfig;
 import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
 import com.example.application.R;
 import com.example.application.models.Chat;
-import java.text.SimpleDateFormat;
+import com.example.application.models.ChatRow;
+import com.example.application.repositories.PresenceCache;
+import com.example.application.utils.Avatars;
+import com.example.application.utils.MinuteTicker;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Locale;
-import java.util.concurrent.TimeUnit;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+public class ChatAdapter extends ListAdapter<ChatRow, ChatAdapter.ChatViewHolder>
+        implements MinuteTicker.Listener {
 
-public class ChatAdapter extends RecyclerView.Adapter<ChatAdapter.ChatViewHolder> {
+    // Paleta de colores pastel suaves para los avatares, parseada una sola vez
+    private static final int[] AVATAR_COLORS = {
+        Color.parseColor("#E8E8E8"), // Gris claro
+        Color.parseColor("#E8DEEB"), // Lavanda claro
+        Color.parseColor("#F0E8F0"), // Rosa muy claro
+        Color.parseColor("#E0E8F0"), // Azul muy claro
+        Color.parseColor("#F0F0E8"), // Beige claro
+        Color.parseColor("#E8F0E8"), // Verde muy claro
+        Color.parseColor("#F0E8E8"), // Melocotón claro
+        Color.parseColor("#E8F0F0")  // Cyan muy claro
+    };
+    // Color de texto oscuro para que se vea sobre fondos claros
+    private static final int AVATAR_TEXT_COLOR = Color.parseColor("#666666");
 
-    private List<Chat> chatList;
-    private OnChatClickListener listener;
+    // El diff se calcula en un hilo de fondo compartido por todas las instancias
+    private static final Executor DIFF_EXECUTOR = Executors.newSingleThreadExecutor();
+
+    private final OnChatClickListener listener;
+    // IDs estables por chatId durante la vida del adapter
+    private final Map<String, Long> stableIds = new HashMap<>();
+    // Filas suscritas a la caché de presencia
+    private final Set<ChatViewHolder> observingHolders = new HashSet<>();
+    // Última lista enviada a submitList (la mostrada puede estar aún pendiente del diff)
+    private List<ChatRow> submittedRows = new ArrayList<>();
 
     public interface OnChatClickListener {
         void onChatClick(Chat chat);
     }
 
     public ChatAdapter(OnChatClickListener listener) {
-        this.chatList = new ArrayList<>();
+        super(new AsyncDifferConfig.Builder<>(DIFF_CALLBACK)
+                .setBackgroundThreadExecutor(DIFF_EXECUTOR)
+                .build());
         this.listener = listener;
+        setHasStableIds(true);
     }
 
     @NonNull
@@ -37,12 +71,43 @@ public class ChatAdapter extends RecyclerView.Adapter<ChatAdapter.ChatViewHolder
     public ChatViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         View view = LayoutInflater.from(parent.getContext())
                 .inflate(R.layout.item_chat, parent, false);
-        return new ChatViewHolder(view);
+        ChatViewHolder holder = new ChatViewHolder(view);
+        
+        // Click listener
+        holder.itemView.setOnClickListener(v -> {
+            int position = holder.getBindingAdapterPosition();
+            if (listener != null && position != RecyclerView.NO_POSITION) {
+                listener.onChatClick(getItem(position).getChat());
+            }
+        });
+        return holder;
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ChatViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+            return;
+        }
+
+        // Enlazar solo las vistas que cambiaron
+        int changes = 0;
+        for (Object payload : payloads) {
+            changes |= (Integer) payload;
+        }
+        ChatRow row = getItem(position);
+        if ((changes & ChatDiffCallback.PAYLOAD_UNREAD) != 0) {
+            bindUnreadBadge(holder, row.getChat());
+        }
+        if ((changes & ChatDiffCallback.PAYLOAD_TIME) != 0) {
+            holder.timeTextView.setText(row.getTimeLabel());
+        }
     }
 
     @Override
     public void onBindViewHolder(@NonNull ChatViewHolder holder, int position) {
-        Chat chat = chatList.get(position);
+        ChatRow row = getItem(position);
+        Chat chat = row.getChat();
         
         // Nombre del usuario
         holder.nameTextView.setText(chat.getOtherUserName() != null ? chat.getOtherUserName() : "Usuario");
@@ -54,24 +119,43 @@ public class ChatAdapter extends RecyclerView.Adapter<ChatAdapter.ChatViewHolder
             holder.lastMessageTextView.setText("Nuevo chat");
         }
         
-        // Tiempo
-        if (chat.getLastMessageTime() != null) {
-            holder.timeTextView.setText(getTimeAgo(chat.getLastMessageTime()));
-        } else {
-            holder.timeTextView.setText("Ahora");
-        }
-        
-        // Avatar con iniciales
-        String initials = getInitials(chat.getOtherUserName());
-        holder.avatarTextView.setText(initials);
+        // Tiempo, iniciales y color ya calculados en la fila
+        holder.timeTextView.setText(row.getTimeLabel());
+        holder.avatarTextView.setText(row.getInitials());
+        holder.avatarCard.setCardBackgroundColor(row.getAvatarColor());
+        holder.avatarTextView.setTextColor(AVATAR_TEXT_COLOR);
         
-        // Color aleatorio para avatar basado en el nombre
-        int color = generateColorFromName(chat.getOtherUserName());
-        holder.avatarCard.setCardBackgroundColor(color);
-        
-        // Color de texto oscuro para que se vea sobre fondos claros
-        holder.avatarTextView.setTextColor(Color.parseColor("#666666"));
+        bindUnreadBadge(holder, chat);
         
+        // Indicador de estado en línea: lo actualiza la caché de presencia
+        holder.observePresence(chat.getOtherUserId());
+        observingHolders.add(holder);
+    }
+
+    @Override
+    public void onViewRecycled(@NonNull ChatViewHolder holder) {
+        super.onViewRecycled(holder);
+        holder.stopObservingPresence();
+        observingHolders.remove(holder);
+    }
+
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        MinuteTicker.getInstance().addListener(this);
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onDetachedFromRecyclerView(recyclerView);
+        MinuteTicker.getInstance().removeListener(this);
+        for (ChatViewHolder holder : observingHolders) {
+            holder.stopObservingPresence();
+        }
+        observingHolders.clear();
+    }
+
+    private void bindUnreadBadge(ChatViewHolder holder, Chat chat) {
         // Badge de mensajes no leídos
         if (chat.getUnreadCount() > 0) {
             holder.unreadBadge.setVisibility(View.VISIBLE);
@@ -81,141 +165,74 @@ public class ChatAdapter extends RecyclerView.Adapter<ChatAdapter.ChatViewHolder
         } else {
             holder.unreadBadge.setVisibility(View.GONE);
         }
-        
-        // Indicador de estado en línea
-        holder.onlineIndicator.setVisibility(View.VISIBLE);
-        if (chat.isOtherUserOnline()) {
-            holder.onlineIndicator.setBackgroundResource(R.drawable.bg_online_indicator_active);
-        } else {
-            holder.onlineIndicator.setBackgroundResource(R.drawable.bg_online_indicator);
-        }
-        
-        // Click listener
-        holder.itemView.setOnClickListener(v -> {
-            if (listener != null) {
-                listener.onChatClick(chat);
-            }
-        });
     }
 
     @Override
-    public int getItemCount() {
-        return chatList.size();
+    public long getItemId(int position) {
+        String chatId = getItem(position).getChat().getChatId();
+        Long id = stableIds.get(chatId);
+        if (id == null) {
+            id = (long) stableIds.size();
+            stableIds.put(chatId, id);
+        }
+        return id;
     }
 
+    /**
+     * Envía la nueva lista al AsyncListDiffer; el diff se calcula fuera del hilo principal.
+     * Las filas (iniciales, color, tiempo) se calculan aquí, una vez por cambio de datos.
+     */
     public void updateChats(List<Chat> newChats) {
-        DiffUtil.DiffResult diffResult = DiffUtil.calculateDiff(new ChatDiffCallback(this.chatList, newChats));
-        this.chatList = new ArrayList<>(newChats);
-        diffResult.dispatchUpdatesTo(this);
-    }
-    
-    private static class ChatDiffCallback extends DiffUtil.Callback {
-        private final List<Chat> oldList;
-        private final List<Chat> newList;
-        
-        public ChatDiffCallback(List<Chat> oldList, List<Chat> newList) {
-            this.oldList = oldList;
-            this.newList = newList;
-        }
-        
-        @Override
-        public int getOldListSize() {
-            return oldList.size();
+        long now = System.currentTimeMillis();
+        List<ChatRow> rows = new ArrayList<>(newChats.size());
+        for (Chat chat : newChats) {
+            rows.add(toRow(chat, now));
         }
-        
-        @Override
-        public int getNewListSize() {
-            return newList.size();
-        }
-        
-        @Override
-        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
-            // Comparar por chatId (identificador único)
-            return oldList.get(oldItemPosition).getChatId()
-                    .equals(newList.get(newItemPosition).getChatId());
-        }
-        
-        @Override
-        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
-            Chat oldChat = oldList.get(oldItemPosition);
-            Chat newChat = newList.get(newItemPosition);
-            
-            // Comparar todos los campos que se muestran en el UI
-            boolean sameLastMessage = (oldChat.getLastMessage() == null && newChat.getLastMessage() == null) ||
-                    (oldChat.getLastMessage() != null && oldChat.getLastMessage().equals(newChat.getLastMessage()));
-            
-            boolean sameUnreadCount = oldChat.getUnreadCount() == newChat.getUnreadCount();
-            
-            boolean sameOnlineStatus = oldChat.isOtherUserOnline() == newChat.isOtherUserOnline();
-            
-            boolean sameName = (oldChat.getOtherUserName() == null && newChat.getOtherUserName() == null) ||
-                    (oldChat.getOtherUserName() != null && oldChat.getOtherUserName().equals(newChat.getOtherUserName()));
-            
-            boolean sameTime = (oldChat.getLastMessageTime() == null && newChat.getLastMessageTime() == null) ||
-                    (oldChat.getLastMessageTime() != null && oldChat.getLastMessageTime().equals(newChat.getLastMessageTime()));
-            
-            return sameLastMessage && sameUnreadCount && sameOnlineStatus && sameName && sameTime;
-        }
-    }
-
-    private String getInitials(String name) {
-        if (name == null || name.isEmpty()) {
-            return "U";
+        submitRows(rows);
+    }
+
+    public static ChatRow toRow(Chat chat, long now) {
+        String name = chat.getOtherUserName();
+        return new ChatRow(chat, Avatars.getInitials(name), generateColorFromName(name), now);
+    }
+
+    /**
+     * Sustituye las filas cuyo texto de tiempo ha caducado por copias nuevas; el
+     * diff repinta solo las que cambian de texto (PAYLOAD_TIME). Parte de la última
+     * lista enviada, no de la mostrada: un diff en curso no se deshace.
+     */
+    @Override
+    public void onMinuteTick(long now) {
+        List<ChatRow> rows = new ArrayList<>(submittedRows.size());
+        boolean changed = false;
+        for (ChatRow row : submittedRows) {
+            ChatRow updated = row.atTime(now);
+            changed |= updated != row;
+            rows.add(updated);
         }
-        String[] parts = name.trim().split(" ");
-        if (parts.length >= 2) {
-            return (parts[0].charAt(0) + "" + parts[1].charAt(0)).toUpperCase();
-        } else {
-            return name.substring(0, Math.min(2, name.length())).toUpperCase();
+        if (changed) {
+            submitRows(rows);
         }
     }
 
-    private int generateColorFromName(String name) {
-        if (name == null || name.isEmpty()) {
-            return Color.parseColor("#E8E8E8");
-        }
-        
-        // Lista de colores pastel suaves como en la imagen de diseño
-        int[] colors = {
-            Color.parseColor("#E8E8E8"), // Gris claro
-            Color.parseColor("#E8DEEB"), // Lavanda claro
-            Color.parseColor("#F0E8F0"), // Rosa muy claro
-            Color.parseColor("#E0E8F0"), // Azul muy claro
-            Color.parseColor("#F0F0E8"), // Beige claro
-            Color.parseColor("#E8F0E8"), // Verde muy claro
-            Color.parseColor("#F0E8E8"), // Melocotón claro
-            Color.parseColor("#E8F0F0")  // Cyan muy claro
-        };
-        
-        int hash = name.hashCode();
-        return colors[Math.abs(hash) % colors.length];
+    private void submitRows(List<ChatRow> rows) {
+        submittedRows = rows;
+        submitList(rows);
     }
+    
+    // Público para poder medir el diff en el módulo :benchmark
+    public static final DiffUtil.ItemCallback<ChatRow> DIFF_CALLBACK = new ChatDiffCallback();
 
-    private String getTimeAgo(Date date) {
-        if (date == null) {
-            return "Ahora";
-        }
-        
-        long diff = System.currentTimeMillis() - date.getTime();
-        long minutes = TimeUnit.MILLISECONDS.toMinutes(diff);
-        long hours = TimeUnit.MILLISECONDS.toHours(diff);
-        long days = TimeUnit.MILLISECONDS.toDays(diff);
-        
-        if (minutes < 1) {
-            return "Ahora";
-        } else if (minutes < 60) {
-            return minutes + " min";
-        } else if (hours < 24) {
-            return hours + " hr";
-        } else if (days < 7) {
-            return days + " day" + (days > 1 ? "s" : "");
-        } else {
-            SimpleDateFormat sdf = new SimpleDateFormat("dd/MM/yy", Locale.getDefault());
-            return sdf.format(date);
+    // Color pastel estable por nombre (público para el módulo :benchmark)
+    public static int generateColorFromName(String name) {
+        if (name == null || name.isEmpty()) {
+            return AVATAR_COLORS[0];
         }
+        int hash = name.hashCode();
+        return AVATAR_COLORS[Math.abs(hash) % AVATAR_COLORS.length];
     }
 
-    static class ChatViewHolder extends RecyclerView.ViewHolder {
+    static class ChatViewHolder extends RecyclerView.ViewHolder implements PresenceCache.Listener {
         CardView avatarCard;
         TextView avatarTextView;
         TextView nameTextView;
@@ -223,6 +240,7 @@ public class ChatAdapter extends RecyclerView.Adapter<ChatAdapter.ChatViewHolder
         TextView timeTextView;
         TextView unreadBadge;
         View onlineIndicator;
+        private String observedUserId;
 
         public ChatViewHolder(@NonNull View itemView) {
             super(itemView);
@@ -234,5 +252,39 @@ public class ChatAdapter extends RecyclerView.Adapter<ChatAdapter.ChatViewHolder
             unreadBadge = itemView.findViewById(R.id.unreadBadge);
             onlineIndicator = itemView.findViewById(R.id.onlineIndicator);
         }
+
+        void observePresence(String userId) {
+            if (userId != null && userId.equals(observedUserId)) {
+                return;
+            }
+            stopObservingPresence();
+            observedUserId = userId;
+            onlineIndicator.setVisibility(View.VISIBLE);
+            if (userId != null) {
+                PresenceCache.getInstance().observe(userId, this);
+            } else {
+                setOnline(false);
+            }
+        }
+
+        void stopObservingPresence() {
+            if (observedUserId != null) {
+                PresenceCache.getInstance().removeObserver(observedUserId, this);
+                observedUserId = null;
+            }
+        }
+
+        @Override
+        public void onPresenceChanged(String userId, boolean online) {
+            if (userId.equals(observedUserId)) {
+                setOnline(online);
+            }
+        }
+
+        private void setOnline(boolean online) {
+            onlineIndicator.setBackgroundResource(online
+                    ? R.drawable.bg_online_indicator_active
+                    : R.drawable.bg_online_indicator);
+        }
     }
 }
@@ -0,0 +1,60 @@
+package com.example.application.adapters;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+
+import com.example.application.models.Chat;
+import com.example.application.models.ChatRow;
+
+import java.util.Objects;
+
+/**
+ * Diff de la lista de chats. Si solo cambian el badge de no leídos o el texto de
+ * tiempo, devuelve un payload con esos bits y ChatAdapter enlaza solo esa vista
+ * en vez de la fila completa.
+ *
+ * Sin dependencias de vistas, para poder probarlo en la JVM.
+ */
+final class ChatDiffCallback extends DiffUtil.ItemCallback<ChatRow> {
+
+    // Payloads (bits) para cambios que solo afectan a una vista de la fila
+    static final int PAYLOAD_UNREAD = 1;
+    static final int PAYLOAD_TIME = 2;
+
+    @Override
+    public boolean areItemsTheSame(@NonNull ChatRow oldRow, @NonNull ChatRow newRow) {
+        // Comparar por chatId (identificador único)
+        return oldRow.getChat().getChatId().equals(newRow.getChat().getChatId());
+    }
+
+    @Override
+    public boolean areContentsTheSame(@NonNull ChatRow oldRow, @NonNull ChatRow newRow) {
+        // Comparar todos los campos que se muestran en el UI
+        return sameRowContent(oldRow.getChat(), newRow.getChat())
+                && oldRow.getChat().getUnreadCount() == newRow.getChat().getUnreadCount()
+                && oldRow.getTimeLabel().equals(newRow.getTimeLabel());
+    }
+
+    @Override
+    public Object getChangePayload(@NonNull ChatRow oldRow, @NonNull ChatRow newRow) {
+        // Si cambió algo más que el badge o el tiempo, enlazar la fila completa
+        if (!sameRowContent(oldRow.getChat(), newRow.getChat())) {
+            return null;
+        }
+        int changes = 0;
+        if (oldRow.getChat().getUnreadCount() != newRow.getChat().getUnreadCount()) {
+            changes |= PAYLOAD_UNREAD;
+        }
+        if (!oldRow.getTimeLabel().equals(newRow.getTimeLabel())) {
+            changes |= PAYLOAD_TIME;
+        }
+        return changes;
+    }
+
+    private static boolean sameRowContent(Chat oldChat, Chat newChat) {
+        return Objects.equals(oldChat.getLastMessage(), newChat.getLastMessage())
+                && Objects.equals(oldChat.getOtherUserName(), newChat.getOtherUserName())
+                && Objects.equals(oldChat.getLastMessageTime(), newChat.getLastMessageTime())
+                && Objects.equals(oldChat.getOtherUserId(), newChat.getOtherUserId());
+    }
+}
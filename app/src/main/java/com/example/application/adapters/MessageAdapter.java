@@ -1,6 +1,5 @@
 package com.example.application.adapters;
 
-import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ImageView;
@@ -9,102 +8,136 @@ import android.widget.TextView;
 import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
-import com.bumptech.glide.Glide;
+import com.bumptech.glide.RequestManager;
 import com.bumptech.glide.load.engine.DiskCacheStrategy;
-import com.bumptech.glide.request.RequestListener;
-import com.bumptech.glide.request.target.Target;
 import com.example.application.R;
 import com.example.application.models.ChatItem;
 import com.example.application.models.Message;
+import com.example.application.utils.DateFormats;
+import com.example.application.utils.DateGrouping;
+import com.example.application.utils.DayKeys;
+import com.example.application.utils.DebugLog;
+import com.example.application.utils.MinuteTicker;
 
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
-import java.util.Locale;
 
-public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
+        implements MinuteTicker.Listener {
 
-    private static final int VIEW_TYPE_SENT = 1;
-    private static final int VIEW_TYPE_RECEIVED = 2;
-    private static final int VIEW_TYPE_DATE_SEPARATOR = 3;
-    private static final int VIEW_TYPE_IMAGE_SENT = 4;
-    private static final int VIEW_TYPE_IMAGE_RECEIVED = 5;
+    private static final String TAG = "MessageAdapter";
+
+    // Payload para refrescar solo los ticks de leído de un mensaje enviado
+    private static final Object PAYLOAD_READ_STATE = new Object();
+
+    // Vistas previas ya decodificadas, por messageId. Son de pocos KB: con 2 MB caben
+    // las de varias conversaciones. Compartida como el pool de filas
+    private static final int PREVIEW_CACHE_BYTES = 2 * 1024 * 1024;
+    private static final android.util.LruCache<String, android.graphics.Bitmap> PREVIEW_CACHE =
+            new android.util.LruCache<String, android.graphics.Bitmap>(PREVIEW_CACHE_BYTES) {
+                @Override
+                protected int sizeOf(String messageId, android.graphics.Bitmap bitmap) {
+                    return bitmap.getByteCount();
+                }
+            };
 
     private List<ChatItem> chatItemList;
     private String currentUserId;
-
-    public MessageAdapter(String currentUserId) {
+    // Marca de lectura del otro participante: los mensajes enviados hasta esa hora están leídos
+    private Date peerLastReadAt;
+    // Glide de la actividad: las filas del pool tienen el contexto de la aplicación y
+    // Glide.with(vista) no encontraría el ciclo de vida al que atar las cargas
+    private final RequestManager glide;
+    // Día respecto al que se forman los textos de los separadores ("Hoy", "Ayer")
+    private int today = DayKeys.today();
+
+    public MessageAdapter(String currentUserId, RequestManager glide) {
         this.chatItemList = new ArrayList<>();
         this.currentUserId = currentUserId;
+        this.glide = glide;
+        setHasStableIds(true);
+    }
+
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        MinuteTicker.getInstance().addListener(this);
+        syncToday();
     }
 
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onDetachedFromRecyclerView(recyclerView);
+        MinuteTicker.getInstance().removeListener(this);
+    }
+
+    @Override
+    public void onMinuteTick(long now) {
+        syncToday();
+    }
+
+    // Tipo e ID se resuelven al crear cada ChatItem: aquí solo se leen
     @Override
     public int getItemViewType(int position) {
-        ChatItem chatItem = chatItemList.get(position);
-        
-        if (chatItem.getType() == ChatItem.TYPE_DATE_SEPARATOR) {
-            return VIEW_TYPE_DATE_SEPARATOR;
-        }
-        
-        Message message = chatItem.getMessage();
-        boolean isSent = message.getSenderId().equals(currentUserId);
-        boolean isImage = "image".equals(message.getType());
-        
-        android.util.Log.d("MessageAdapter", "getItemViewType - Position: " + position + 
-                ", Type: " + message.getType() + ", isImage: " + isImage + ", isSent: " + isSent);
-        
-        if (isImage) {
-            return isSent ? VIEW_TYPE_IMAGE_SENT : VIEW_TYPE_IMAGE_RECEIVED;
-        } else {
-            return isSent ? VIEW_TYPE_SENT : VIEW_TYPE_RECEIVED;
-        }
+        return chatItemList.get(position).getViewType();
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return chatItemList.get(position).getStableId();
     }
 
     @NonNull
     @Override
     public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
-        View view;
+        // Las filas salen del pool compartido (ya infladas o con el contexto de la app)
+        View view = MessageViewPool.getInstance(parent.getContext()).inflate(viewType, parent);
         switch (viewType) {
-            case VIEW_TYPE_SENT:
-                view = LayoutInflater.from(parent.getContext())
-                        .inflate(R.layout.item_message_sent, parent, false);
+            case ChatItem.VIEW_TYPE_SENT:
                 return new SentMessageViewHolder(view);
-            case VIEW_TYPE_RECEIVED:
-                view = LayoutInflater.from(parent.getContext())
-                        .inflate(R.layout.item_message_received, parent, false);
+            case ChatItem.VIEW_TYPE_RECEIVED:
                 return new ReceivedMessageViewHolder(view);
-            case VIEW_TYPE_IMAGE_SENT:
-                view = LayoutInflater.from(parent.getContext())
-                        .inflate(R.layout.item_message_image_sent, parent, false);
+            case ChatItem.VIEW_TYPE_IMAGE_SENT:
                 return new ImageSentViewHolder(view);
-            case VIEW_TYPE_IMAGE_RECEIVED:
-                view = LayoutInflater.from(parent.getContext())
-                        .inflate(R.layout.item_message_image_received, parent, false);
+            case ChatItem.VIEW_TYPE_IMAGE_RECEIVED:
                 return new ImageReceivedViewHolder(view);
-            case VIEW_TYPE_DATE_SEPARATOR:
+            case ChatItem.VIEW_TYPE_DATE_SEPARATOR:
             default:
-                view = LayoutInflater.from(parent.getContext())
-                        .inflate(R.layout.item_date_separator, parent, false);
                 return new DateSeparatorViewHolder(view);
         }
     }
 
+    @Override
+    public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position,
+                                 @NonNull List<Object> payloads) {
+        if (payloads.contains(PAYLOAD_READ_STATE)) {
+            Message message = chatItemList.get(position).getMessage();
+            if (holder instanceof SentMessageViewHolder) {
+                ((SentMessageViewHolder) holder).bindTime(message, isReadByPeer(message));
+                return;
+            } else if (holder instanceof ImageSentViewHolder) {
+                ((ImageSentViewHolder) holder).bindTime(message, isReadByPeer(message));
+                return;
+            }
+        }
+        super.onBindViewHolder(holder, position, payloads);
+    }
+
     @Override
     public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
         ChatItem chatItem = chatItemList.get(position);
 
         if (holder instanceof SentMessageViewHolder) {
-            ((SentMessageViewHolder) holder).bind(chatItem.getMessage());
+            ((SentMessageViewHolder) holder).bind(chatItem.getMessage(), isReadByPeer(chatItem.getMessage()));
         } else if (holder instanceof ReceivedMessageViewHolder) {
             ((ReceivedMessageViewHolder) holder).bind(chatItem.getMessage());
         } else if (holder instanceof ImageSentViewHolder) {
-            ((ImageSentViewHolder) holder).bind(chatItem.getMessage());
+            ((ImageSentViewHolder) holder).bind(chatItem.getMessage(), isReadByPeer(chatItem.getMessage()), glide);
         } else if (holder instanceof ImageReceivedViewHolder) {
-            ((ImageReceivedViewHolder) holder).bind(chatItem.getMessage());
+            ((ImageReceivedViewHolder) holder).bind(chatItem.getMessage(), glide);
         } else if (holder instanceof DateSeparatorViewHolder) {
-            ((DateSeparatorViewHolder) holder).bind(chatItem.getDateText());
+            ((DateSeparatorViewHolder) holder).bind(DateGrouping.getDateText(chatItem, today));
         }
     }
 
@@ -113,60 +146,260 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
         return chatItemList.size();
     }
 
+    /**
+     * Reemplaza todos los mensajes. Solo se usa para la carga inicial; los cambios
+     * posteriores llegan como deltas (addMessage/updateMessage/removeMessage).
+     */
     public void updateMessages(List<Message> newMessages) {
-        List<ChatItem> items = new ArrayList<>();
-        
-        for (int i = 0; i < newMessages.size(); i++) {
-            Message currentMessage = newMessages.get(i);
-            
-            // Verificar si necesitamos agregar un separador de fecha
-            if (i == 0 || !isSameDay(newMessages.get(i - 1).getTimestamp(), currentMessage.getTimestamp())) {
-                String dateText = getDateText(currentMessage.getTimestamp());
-                items.add(new ChatItem(dateText, currentMessage.getTimestamp()));
-            }
-            
-            // Agregar el mensaje
-            items.add(new ChatItem(currentMessage));
-        }
-        
-        this.chatItemList = items;
+        this.chatItemList = buildItems(newMessages);
+        today = DayKeys.today();
         notifyDataSetChanged();
     }
-    
-    private boolean isSameDay(Date date1, Date date2) {
-        if (date1 == null || date2 == null) {
-            return false;
-        }
-        
-        Calendar cal1 = Calendar.getInstance();
-        Calendar cal2 = Calendar.getInstance();
-        cal1.setTime(date1);
-        cal2.setTime(date2);
-        
-        return cal1.get(Calendar.YEAR) == cal2.get(Calendar.YEAR) &&
-               cal1.get(Calendar.DAY_OF_YEAR) == cal2.get(Calendar.DAY_OF_YEAR);
+
+    /**
+     * Inserta una página de mensajes más antiguos al principio de la lista.
+     */
+    public void prependMessages(List<Message> olderMessages) {
+        if (olderMessages.isEmpty()) {
+            return;
+        }
+        syncToday();
+        List<ChatItem> items = buildItems(olderMessages);
+
+        // Si el primer día ya mostrado continúa en la página nueva, su separador sobra
+        Date lastOlder = olderMessages.get(olderMessages.size() - 1).getTimestamp();
+        if (!chatItemList.isEmpty()
+                && chatItemList.get(0).getType() == ChatItem.TYPE_DATE_SEPARATOR
+                && isSameDay(chatItemList.get(0).getDate(), lastOlder)) {
+            chatItemList.remove(0);
+            notifyItemRemoved(0);
+        }
+
+        chatItemList.addAll(0, items);
+        notifyItemRangeInserted(0, items.size());
     }
-    
-    private String getDateText(Date date) {
-        if (date == null) {
-            return "";
-        }
-        
-        Calendar messageDate = Calendar.getInstance();
-        messageDate.setTime(date);
-        
-        Calendar today = Calendar.getInstance();
-        Calendar yesterday = Calendar.getInstance();
-        yesterday.add(Calendar.DAY_OF_YEAR, -1);
-        
-        if (isSameDay(date, today.getTime())) {
-            return "Hoy";
-        } else if (isSameDay(date, yesterday.getTime())) {
-            return "Ayer";
+
+    /**
+     * Inserta un mensaje en su posición cronológica (normalmente al final),
+     * añadiendo el separador de fecha solo si empieza un día nuevo.
+     * Si el mensaje ya está en la lista, se actualiza.
+     */
+    public void addMessage(Message message) {
+        if (indexOfMessage(message.getMessageId()) >= 0) {
+            updateMessage(message);
+            return;
+        }
+        // Pasada la medianoche el separador nuevo sería otro "Hoy"
+        syncToday();
+
+        // Buscar desde el final el último mensaje que no es posterior a este
+        int position = 0;
+        Message previous = null;
+        for (int i = chatItemList.size() - 1; i >= 0; i--) {
+            ChatItem item = chatItemList.get(i);
+            if (item.getType() == ChatItem.TYPE_MESSAGE
+                    && compareTimestamps(item.getMessage(), message) <= 0) {
+                position = i + 1;
+                previous = item.getMessage();
+                break;
+            }
+        }
+
+        if (previous != null && isSameDay(previous.getTimestamp(), message.getTimestamp())) {
+            chatItemList.add(position, new ChatItem(message, currentUserId));
+            notifyItemInserted(position);
+            return;
+        }
+
+        // Empieza un día: reutilizar el separador siguiente si es del mismo día
+        if (position < chatItemList.size()) {
+            ChatItem next = chatItemList.get(position);
+            if (next.getType() == ChatItem.TYPE_DATE_SEPARATOR
+                    && isSameDay(next.getDate(), message.getTimestamp())) {
+                chatItemList.add(position + 1, new ChatItem(message, currentUserId));
+                notifyItemInserted(position + 1);
+                return;
+            }
+        }
+
+        chatItemList.add(position, new ChatItem(message.getTimestamp()));
+        chatItemList.add(position + 1, new ChatItem(message, currentUserId));
+        notifyItemRangeInserted(position, 2);
+    }
+
+    /**
+     * Actualiza un mensaje existente. Solo se vuelve a enlazar su fila, salvo que
+     * el cambio de hora lo mueva de sitio.
+     */
+    public void updateMessage(Message message) {
+        int position = indexOfMessage(message.getMessageId());
+        if (position < 0) {
+            addMessage(message);
+            return;
+        }
+
+        Message current = chatItemList.get(position).getMessage();
+        if (isSameDay(current.getTimestamp(), message.getTimestamp())
+                && isInOrder(position, message)) {
+            chatItemList.set(position, new ChatItem(message, currentUserId));
+            notifyItemChanged(position);
         } else {
-            SimpleDateFormat sdf = new SimpleDateFormat("dd/MM/yyyy", Locale.getDefault());
-            return sdf.format(date);
+            removeMessage(message.getMessageId());
+            addMessage(message);
+        }
+    }
+
+    /**
+     * Marca como no enviado un mensaje pendiente que el servidor rechazó. Solo
+     * cambia la hora con el estado, así que basta con el payload de lectura.
+     */
+    public void markFailed(String messageId) {
+        int position = indexOfMessage(messageId);
+        if (position < 0) {
+            return;
+        }
+        Message message = chatItemList.get(position).getMessage();
+        message.setPending(false);
+        message.setFailed(true);
+        notifyItemChanged(position, PAYLOAD_READ_STATE);
+    }
+
+    /**
+     * Elimina un mensaje y, si queda vacío, el separador de su día.
+     */
+    public void removeMessage(String messageId) {
+        int position = indexOfMessage(messageId);
+        if (position < 0) {
+            return;
+        }
+        chatItemList.remove(position);
+        notifyItemRemoved(position);
+
+        int separator = position - 1;
+        boolean dayIsEmpty = position == chatItemList.size()
+                || chatItemList.get(position).getType() == ChatItem.TYPE_DATE_SEPARATOR;
+        if (separator >= 0 && dayIsEmpty
+                && chatItemList.get(separator).getType() == ChatItem.TYPE_DATE_SEPARATOR) {
+            chatItemList.remove(separator);
+            notifyItemRemoved(separator);
+        }
+    }
+
+    /**
+     * Actualiza la marca de lectura del otro participante y refresca solo los
+     * mensajes enviados cuyo estado de leído cambia: los que quedan entre la
+     * marca anterior y la nueva.
+     */
+    public void setPeerLastReadAt(Date lastReadAt) {
+        Date previous = peerLastReadAt;
+        peerLastReadAt = lastReadAt;
+        if (previous == null ? lastReadAt == null : previous.equals(lastReadAt)) {
+            return;
+        }
+        // Los mensajes anteriores a ambas marcas no cambian: se recorre desde el final
+        Date lowest = previous == null || lastReadAt == null
+                ? null
+                : (previous.before(lastReadAt) ? previous : lastReadAt);
+        for (int i = chatItemList.size() - 1; i >= 0; i--) {
+            Message message = chatItemList.get(i).getMessage();
+            if (message == null || message.getTimestamp() == null) {
+                continue;
+            }
+            if (lowest != null && !message.getTimestamp().after(lowest)) {
+                break;
+            }
+            if (currentUserId.equals(message.getSenderId())
+                    && isReadAt(message, previous) != isReadAt(message, lastReadAt)) {
+                notifyItemChanged(i, PAYLOAD_READ_STATE);
+            }
+        }
+    }
+
+    /**
+     * Al cambiar de día, vuelve a enlazar los separadores cuyo texto cambia: los
+     * que eran "Hoy" o "Ayer" y los que pasan a serlo. Están al final de la lista.
+     */
+    private void syncToday() {
+        int newToday = DayKeys.today();
+        if (newToday == today) {
+            return;
+        }
+        int previousToday = today;
+        today = newToday;
+        int oldest = Math.min(previousToday, newToday) - 1;
+        for (int i = chatItemList.size() - 1; i >= 0; i--) {
+            ChatItem item = chatItemList.get(i);
+            if (item.getType() != ChatItem.TYPE_DATE_SEPARATOR || item.getDate() == null) {
+                continue;
+            }
+            if (item.getDayKey() < oldest) {
+                break;
+            }
+            notifyItemChanged(i);
+        }
+    }
+
+    private boolean isReadByPeer(Message message) {
+        return isReadAt(message, peerLastReadAt);
+    }
+
+    // Leído con la marca dada: confirmado por el servidor y no posterior a la marca
+    private static boolean isReadAt(Message message, Date lastReadAt) {
+        return !message.isPending() && !message.isFailed() && lastReadAt != null
+                && message.getTimestamp() != null && !message.getTimestamp().after(lastReadAt);
+    }
+
+    private List<ChatItem> buildItems(List<Message> messages) {
+        return DateGrouping.buildItems(messages, currentUserId);
+    }
+
+    // Se busca desde el final porque los cambios casi siempre afectan a los mensajes recientes
+    public boolean hasMessage(String messageId) {
+        return indexOfMessage(messageId) >= 0;
+    }
+
+    private int indexOfMessage(String messageId) {
+        if (messageId == null) {
+            return -1;
+        }
+        for (int i = chatItemList.size() - 1; i >= 0; i--) {
+            ChatItem item = chatItemList.get(i);
+            if (item.getType() == ChatItem.TYPE_MESSAGE
+                    && messageId.equals(item.getMessage().getMessageId())) {
+                return i;
+            }
         }
+        return -1;
+    }
+
+    // Comprueba que el mensaje sigue ordenado respecto a sus vecinos
+    private boolean isInOrder(int position, Message message) {
+        for (int i = position - 1; i >= 0; i--) {
+            ChatItem item = chatItemList.get(i);
+            if (item.getType() == ChatItem.TYPE_MESSAGE) {
+                if (compareTimestamps(item.getMessage(), message) > 0) return false;
+                break;
+            }
+        }
+        for (int i = position + 1; i < chatItemList.size(); i++) {
+            ChatItem item = chatItemList.get(i);
+            if (item.getType() == ChatItem.TYPE_MESSAGE) {
+                if (compareTimestamps(message, item.getMessage()) > 0) return false;
+                break;
+            }
+        }
+        return true;
+    }
+
+    // Los mensajes sin hora se consideran los más recientes
+    private static int compareTimestamps(Message a, Message b) {
+        if (a.getTimestamp() == null) return b.getTimestamp() == null ? 0 : 1;
+        if (b.getTimestamp() == null) return -1;
+        return a.getTimestamp().compareTo(b.getTimestamp());
+    }
+    
+    private boolean isSameDay(Date date1, Date date2) {
+        return DateGrouping.isSameDay(date1, date2);
     }
 
     // ViewHolder para mensajes enviados
@@ -180,9 +413,13 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
             timeTextView = itemView.findViewById(R.id.timeTextView);
         }
 
-        public void bind(Message message) {
+        public void bind(Message message, boolean readByPeer) {
             messageTextView.setText(message.getText());
-            timeTextView.setText(formatTime(message.getTimestamp()));
+            bindTime(message, readByPeer);
+        }
+
+        void bindTime(Message message, boolean readByPeer) {
+            timeTextView.setText(formatSentTime(message, readByPeer));
         }
     }
 
@@ -221,38 +458,27 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
     static class ImageSentViewHolder extends RecyclerView.ViewHolder {
         ImageView messageImageView;
         TextView timeTextView;
+        Message message;
 
         public ImageSentViewHolder(@NonNull View itemView) {
             super(itemView);
             messageImageView = itemView.findViewById(R.id.messageImageView);
             timeTextView = itemView.findViewById(R.id.timeTextView);
+            // Un solo listener por fila: abre el mensaje enlazado en ese momento
+            messageImageView.setOnClickListener(v -> openImage(v, message));
         }
 
-        public void bind(Message message) {
-            // Cargar imagen con Glide
-            String imageUrl = message.getImageUrl();
-            android.util.Log.d("MessageAdapter", "Cargando imagen enviada: " + imageUrl);
-            
-            Glide.with(itemView.getContext())
-                    .load(imageUrl)
-                    .diskCacheStrategy(DiskCacheStrategy.ALL)
-                    .placeholder(R.drawable.ic_image_placeholder)
-                    .error(R.drawable.ic_image_placeholder)
-                    .listener(new RequestListener<android.graphics.drawable.Drawable>() {
-                        @Override
-                        public boolean onLoadFailed(@androidx.annotation.Nullable com.bumptech.glide.load.engine.GlideException e, Object model, Target<android.graphics.drawable.Drawable> target, boolean isFirstResource) {
-                            return false;
-                        }
-
-                        @Override
-                        public boolean onResourceReady(android.graphics.drawable.Drawable resource, Object model, Target<android.graphics.drawable.Drawable> target, com.bumptech.glide.load.DataSource dataSource, boolean isFirstResource) {
-                            // Forzar actualización del layout después de cargar la imagen
-                            messageImageView.post(() -> messageImageView.requestLayout());
-                            return false;
-                        }
-                    })
-                    .into(messageImageView);
-            timeTextView.setText(formatTime(message.getTimestamp()));
+        // El pool se comparte entre chats: el RequestManager llega en cada bind, no se guarda
+        public void bind(Message message, boolean readByPeer, RequestManager glide) {
+            this.message = message;
+            // Miniatura con la vista previa del mensaje como placeholder
+            if (DebugLog.ENABLED) DebugLog.d(TAG, "Cargando imagen enviada: " + message.getImageUrl());
+            loadThumbnail(glide, messageImageView, message);
+            bindTime(message, readByPeer);
+        }
+
+        void bindTime(Message message, boolean readByPeer) {
+            timeTextView.setText(formatSentTime(message, readByPeer));
         }
     }
 
@@ -260,46 +486,94 @@ public class MessageAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder
     static class ImageReceivedViewHolder extends RecyclerView.ViewHolder {
         ImageView messageImageView;
         TextView timeTextView;
+        Message message;
 
         public ImageReceivedViewHolder(@NonNull View itemView) {
             super(itemView);
             messageImageView = itemView.findViewById(R.id.messageImageView);
             timeTextView = itemView.findViewById(R.id.timeTextView);
+            messageImageView.setOnClickListener(v -> openImage(v, message));
         }
 
-        public void bind(Message message) {
-            // Cargar imagen con Glide
-            String imageUrl = message.getImageUrl();
-            android.util.Log.d("MessageAdapter", "Cargando imagen recibida: " + imageUrl);
-            
-            Glide.with(itemView.getContext())
-                    .load(imageUrl)
-                    .diskCacheStrategy(DiskCacheStrategy.ALL)
-                    .placeholder(R.drawable.ic_image_placeholder)
-                    .error(R.drawable.ic_image_placeholder)
-                    .listener(new RequestListener<android.graphics.drawable.Drawable>() {
-                        @Override
-                        public boolean onLoadFailed(@androidx.annotation.Nullable com.bumptech.glide.load.engine.GlideException e, Object model, Target<android.graphics.drawable.Drawable> target, boolean isFirstResource) {
-                            return false;
-                        }
-
-                        @Override
-                        public boolean onResourceReady(android.graphics.drawable.Drawable resource, Object model, Target<android.graphics.drawable.Drawable> target, com.bumptech.glide.load.DataSource dataSource, boolean isFirstResource) {
-                            // Forzar actualización del layout después de cargar la imagen
-                            messageImageView.post(() -> messageImageView.requestLayout());
-                            return false;
-                        }
-                    })
-                    .into(messageImageView);
+        public void bind(Message message, RequestManager glide) {
+            this.message = message;
+            // Miniatura con la vista previa del mensaje como placeholder
+            if (DebugLog.ENABLED) DebugLog.d(TAG, "Cargando imagen recibida: " + message.getImageUrl());
+            loadThumbnail(glide, messageImageView, message);
             timeTextView.setText(formatTime(message.getTimestamp()));
         }
     }
 
-    private static String formatTime(Date date) {
-        if (date == null) {
-            return "";
+    /**
+     * Pinta la burbuja al instante con la vista previa guardada en el mensaje y
+     * después la miniatura. La imagen completa solo se abre al tocarla (openImage).
+     */
+    private static void loadThumbnail(RequestManager glide, ImageView imageView, Message message) {
+        android.graphics.drawable.Drawable placeholder = previewDrawable(imageView, message);
+        glide.load(thumbnailUrl(message))
+                .diskCacheStrategy(DiskCacheStrategy.ALL)
+                .placeholder(placeholder)
+                .error(placeholder)
+                .into(imageView);
+    }
+
+    // Los mensajes antiguos no tienen miniatura: se usa la imagen completa
+    private static String thumbnailUrl(Message message) {
+        return message.getThumbnailUrl() != null ? message.getThumbnailUrl() : message.getImageUrl();
+    }
+
+    private static void openImage(View view, Message message) {
+        if (message == null) {
+            return;
         }
-        SimpleDateFormat sdf = new SimpleDateFormat("hh:mm a", Locale.getDefault());
-        return sdf.format(date);
+        android.content.Context context = hostContext(view);
+        android.content.Intent intent = new android.content.Intent(context,
+                com.example.application.ImageViewerActivity.class);
+        intent.putExtra(com.example.application.ImageViewerActivity.EXTRA_IMAGE_URL, message.getImageUrl());
+        intent.putExtra(com.example.application.ImageViewerActivity.EXTRA_THUMBNAIL_URL, thumbnailUrl(message));
+        context.startActivity(intent);
+    }
+
+    // Las filas usan el contexto de la aplicación (MessageViewPool): para abrir
+    // actividades se usa el del RecyclerView que las muestra
+    private static android.content.Context hostContext(View view) {
+        android.view.ViewParent parent = view.getParent();
+        while (parent instanceof View) {
+            if (parent instanceof RecyclerView) {
+                return ((View) parent).getContext();
+            }
+            parent = parent.getParent();
+        }
+        return view.getContext();
+    }
+
+    // La vista previa se decodifica una vez por mensaje, no en cada bind en el hilo principal
+    private static android.graphics.drawable.Drawable previewDrawable(ImageView imageView, Message message) {
+        byte[] preview = message.getImagePreview();
+        if (preview != null) {
+            String messageId = message.getMessageId();
+            android.graphics.Bitmap bitmap = messageId != null ? PREVIEW_CACHE.get(messageId) : null;
+            if (bitmap == null) {
+                bitmap = android.graphics.BitmapFactory.decodeByteArray(preview, 0, preview.length);
+                if (bitmap != null && messageId != null) {
+                    PREVIEW_CACHE.put(messageId, bitmap);
+                }
+            }
+            if (bitmap != null) {
+                return new android.graphics.drawable.BitmapDrawable(imageView.getResources(), bitmap);
+            }
+        }
+        return androidx.core.content.ContextCompat.getDrawable(imageView.getContext(), R.drawable.ic_image_placeholder);
+    }
+
+    private static String formatTime(Date date) {
+        return DateFormats.formatTime(date);
+    }
+
+    // Hora de un mensaje enviado con su estado: ⚠ no enviado, 🕓 pendiente, ✓ enviado, ✓✓ leído
+    private static String formatSentTime(Message message, boolean readByPeer) {
+        String status = message.isFailed() ? " ⚠ No enviado"
+                : message.isPending() ? " 🕓" : (readByPeer ? " ✓✓" : " ✓");
+        return formatTime(message.getTimestamp()) + status;
     }
 }
@@ -0,0 +1,137 @@
+package com.example.application.adapters;
+
+import android.content.Context;
+import android.util.SparseArray;
+import android.view.ContextThemeWrapper;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.asynclayoutinflater.view.AsyncLayoutInflater;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.application.R;
+import com.example.application.models.ChatItem;
+
+import java.util.ArrayDeque;
+
+/**
+ * Filas de mensajes compartidas por todas las ChatActivity del proceso.
+ *
+ * Al cerrar un chat sus filas vuelven a un RecycledViewPool común y el siguiente
+ * chat las reutiliza en vez de inflarlas de nuevo. Además, mientras se ve la
+ * lista de chats, prewarm() infla en segundo plano (AsyncLayoutInflater) unas
+ * cuantas filas de cada tipo para la primera apertura.
+ *
+ * Todas las filas se inflan con el contexto de la aplicación y el tema de
+ * ChatActivity, así el pool no retiene ninguna actividad. Usar desde el hilo
+ * principal.
+ */
+public class MessageViewPool {
+
+    private static MessageViewPool instance;
+
+    private final Context themedContext;
+    private final LayoutInflater inflater;
+    private final RecyclerView.RecycledViewPool recycledViewPool = new RecyclerView.RecycledViewPool();
+    // Vistas infladas de antemano por tipo de vista, aún sin ViewHolder
+    private final SparseArray<ArrayDeque<View>> prefetched = new SparseArray<>();
+    private AsyncLayoutInflater asyncInflater;
+    // Padre para generar los LayoutParams de RecyclerView al inflar; nunca se muestra
+    private RecyclerView inflateParent;
+    private boolean prewarmed;
+
+    private MessageViewPool(Context context) {
+        themedContext = new ContextThemeWrapper(context.getApplicationContext(), R.style.Theme_Application);
+        inflater = LayoutInflater.from(themedContext);
+
+        // Capacidad por tipo: una pantalla de burbujas de texto, menos de imágenes y separadores
+        recycledViewPool.setMaxRecycledViews(ChatItem.VIEW_TYPE_SENT, 15);
+        recycledViewPool.setMaxRecycledViews(ChatItem.VIEW_TYPE_RECEIVED, 15);
+        recycledViewPool.setMaxRecycledViews(ChatItem.VIEW_TYPE_IMAGE_SENT, 6);
+        recycledViewPool.setMaxRecycledViews(ChatItem.VIEW_TYPE_IMAGE_RECEIVED, 6);
+        recycledViewPool.setMaxRecycledViews(ChatItem.VIEW_TYPE_DATE_SEPARATOR, 6);
+    }
+
+    public static synchronized MessageViewPool getInstance(Context context) {
+        if (instance == null) {
+            instance = new MessageViewPool(context);
+        }
+        return instance;
+    }
+
+    public RecyclerView.RecycledViewPool getRecycledViewPool() {
+        return recycledViewPool;
+    }
+
+    /**
+     * Devuelve una vista para el tipo indicado: una ya inflada por prewarm() si la
+     * hay, o una nueva inflada ahora.
+     */
+    View inflate(int viewType, ViewGroup parent) {
+        ArrayDeque<View> views = prefetched.get(viewType);
+        if (views != null && !views.isEmpty()) {
+            return views.poll();
+        }
+        return inflater.inflate(layoutFor(viewType), parent, false);
+    }
+
+    /**
+     * Infla en segundo plano las filas de la primera pantalla de un chat, si el
+     * pool todavía no tiene. Solo una vez hasta el próximo clear().
+     */
+    public void prewarm() {
+        if (prewarmed) {
+            return;
+        }
+        prewarmed = true;
+        if (asyncInflater == null) {
+            asyncInflater = new AsyncLayoutInflater(themedContext);
+            inflateParent = new RecyclerView(themedContext);
+            inflateParent.setLayoutManager(new LinearLayoutManager(themedContext));
+        }
+        prewarm(ChatItem.VIEW_TYPE_SENT, 6);
+        prewarm(ChatItem.VIEW_TYPE_RECEIVED, 6);
+        prewarm(ChatItem.VIEW_TYPE_DATE_SEPARATOR, 2);
+        prewarm(ChatItem.VIEW_TYPE_IMAGE_SENT, 2);
+        prewarm(ChatItem.VIEW_TYPE_IMAGE_RECEIVED, 2);
+    }
+
+    // Con poca memoria se sueltan todas las filas guardadas
+    public void clear() {
+        recycledViewPool.clear();
+        prefetched.clear();
+        prewarmed = false;
+    }
+
+    private void prewarm(int viewType, int count) {
+        int missing = count - recycledViewPool.getRecycledViewCount(viewType);
+        for (int i = 0; i < missing; i++) {
+            asyncInflater.inflate(layoutFor(viewType), inflateParent, (view, resid, parent) -> {
+                ArrayDeque<View> views = prefetched.get(viewType);
+                if (views == null) {
+                    views = new ArrayDeque<>();
+                    prefetched.put(viewType, views);
+                }
+                views.add(view);
+            });
+        }
+    }
+
+    private static int layoutFor(int viewType) {
+        switch (viewType) {
+            case ChatItem.VIEW_TYPE_SENT:
+                return R.layout.item_message_sent;
+            case ChatItem.VIEW_TYPE_RECEIVED:
+                return R.layout.item_message_received;
+            case ChatItem.VIEW_TYPE_IMAGE_SENT:
+                return R.layout.item_message_image_sent;
+            case ChatItem.VIEW_TYPE_IMAGE_RECEIVED:
+                return R.layout.item_message_image_received;
+            case ChatItem.VIEW_TYPE_DATE_SEPARATOR:
+            default:
+                return R.layout.item_date_separator;
+        }
+    }
+}
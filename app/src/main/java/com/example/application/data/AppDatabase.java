@@ -0,0 +1,73 @@
+package com.example.application.data;
+
+import android.content.Context;
+
+import androidx.room.Database;
+import androidx.room.Room;
+import androidx.room.RoomDatabase;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+/**
+ * Base de datos local de la app.
+ *
+ * Cada cambio de esquema sube la versión y añade su Migration en getInstance;
+ * nunca se usa fallbackToDestructiveMigration, porque aquí se guardan envíos
+ * pendientes que no se pueden perder.
+ */
+@Database(entities = {PendingUpload.class, OutboxMessage.class, StoredMessage.class},
+        version = 3, exportSchema = false)
+public abstract class AppDatabase extends RoomDatabase {
+
+    private static final String DATABASE_NAME = "chat.db";
+
+    private static volatile AppDatabase instance;
+
+    // 1 -> 2: cola de mensajes de texto pendientes (outbox)
+    static final Migration MIGRATION_1_2 = new Migration(1, 2) {
+        @Override
+        public void migrate(SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `outbox` ("
+                    + "`messageId` TEXT NOT NULL, `chatId` TEXT NOT NULL, `otherUserId` TEXT, "
+                    + "`senderId` TEXT NOT NULL, `senderName` TEXT, `text` TEXT, "
+                    + "`state` TEXT NOT NULL, `createdAt` INTEGER NOT NULL, "
+                    + "PRIMARY KEY(`messageId`))");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_outbox_chatId_createdAt` "
+                    + "ON `outbox` (`chatId`, `createdAt`)");
+        }
+    };
+
+    // 2 -> 3: copia local de los mensajes
+    static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+        @Override
+        public void migrate(SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `messages` ("
+                    + "`messageId` TEXT NOT NULL, `chatId` TEXT NOT NULL, `text` TEXT, "
+                    + "`senderId` TEXT, `senderName` TEXT, `timestamp` INTEGER NOT NULL, "
+                    + "`type` TEXT, `imageUrl` TEXT, `thumbnailUrl` TEXT, `imagePreview` BLOB, "
+                    + "PRIMARY KEY(`messageId`))");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_messages_chatId_timestamp` "
+                    + "ON `messages` (`chatId`, `timestamp`)");
+        }
+    };
+
+    public abstract PendingUploadDao pendingUploadDao();
+
+    public abstract OutboxDao outboxDao();
+
+    public abstract StoredMessageDao storedMessageDao();
+
+    public static AppDatabase getInstance(Context context) {
+        if (instance == null) {
+            synchronized (AppDatabase.class) {
+                if (instance == null) {
+                    instance = Room.databaseBuilder(context.getApplicationContext(),
+                                    AppDatabase.class, DATABASE_NAME)
+                            .addMigrations(MIGRATION_1_2, MIGRATION_2_3)
+                            .build();
+                }
+            }
+        }
+        return instance;
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.application.data;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.Query;
+
+import java.util.List;
+
+@Dao
+public interface OutboxDao {
+
+    @Insert
+    void insert(OutboxMessage message);
+
+    // Mensajes por enviar, en orden de envío (los fallidos no se reintentan)
+    @Query("SELECT * FROM outbox WHERE state = 'queued' ORDER BY createdAt")
+    List<OutboxMessage> getQueued();
+
+    // Entregados al SDK sin confirmación del servidor todavía
+    @Query("SELECT * FROM outbox WHERE state = 'sent' ORDER BY createdAt")
+    List<OutboxMessage> getSent();
+
+    @Query("SELECT * FROM outbox WHERE chatId = :chatId ORDER BY createdAt")
+    List<OutboxMessage> getForChat(String chatId);
+
+    @Query("UPDATE outbox SET state = :state WHERE messageId = :messageId")
+    void setState(String messageId, String state);
+
+    @Query("DELETE FROM outbox WHERE messageId = :messageId")
+    void delete(String messageId);
+
+    @Query("DELETE FROM outbox")
+    void deleteAll();
+
+    // Fallidos que ya no se muestran: se crearon antes de cutoff
+    @Query("DELETE FROM outbox WHERE state = 'failed' AND createdAt < :cutoff")
+    void deleteFailedBefore(long cutoff);
+}
@@ -0,0 +1,44 @@
+package com.example.application.data;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * Mensaje de texto pendiente de enviar. El ID es el del documento de Firestore,
+ * generado en el cliente al escribir, así la copia local y la del servidor se
+ * reconcilian por ID.
+ */
+@Entity(tableName = "outbox", indices = {@Index({"chatId", "createdAt"})})
+public class OutboxMessage {
+
+    // En la cola de envío
+    public static final String STATE_QUEUED = "queued";
+    // Confirmado y en la cola de escrituras del SDK: no se vuelve a confirmar
+    public static final String STATE_SENT = "sent";
+    // Rechazado por el servidor: se conserva para mostrarlo como no enviado
+    public static final String STATE_FAILED = "failed";
+
+    @PrimaryKey
+    @NonNull
+    public String messageId = "";
+
+    @NonNull
+    public String chatId = "";
+
+    public String otherUserId;
+
+    @NonNull
+    public String senderId = "";
+
+    public String senderName;
+
+    public String text;
+
+    @NonNull
+    public String state = STATE_QUEUED;
+
+    // Hora local de envío: fija el orden de la cola
+    public long createdAt;
+}
@@ -0,0 +1,58 @@
+package com.example.application.data;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+/**
+ * Entrada del diario de subidas de imágenes. Guarda todo lo necesario para
+ * retomar una subida tras la muerte del proceso: los ficheros ya comprimidos,
+ * las URIs de sesión de Storage y las URLs obtenidas hasta el momento.
+ */
+@Entity(tableName = "pending_uploads")
+public class PendingUpload {
+
+    public static final String STATE_QUEUED = "queued";
+    // Mensaje ya confirmado: un reintento espera a la cola del SDK en vez de repetirlo
+    public static final String STATE_POSTED = "posted";
+    // Ya no se escribe: una subida abandonada se borra del diario (ImageUploadQueue.discard)
+    public static final String STATE_FAILED = "failed";
+
+    @PrimaryKey
+    @NonNull
+    public String uploadId = "";
+
+    // ID del documento del mensaje, generado al encolar: publicar dos veces no duplica
+    @NonNull
+    public String messageId = "";
+
+    @NonNull
+    public String chatId = "";
+
+    public String otherUserId;
+
+    @NonNull
+    public String senderId = "";
+
+    public String senderName;
+
+    // Ficheros comprimidos en el almacenamiento interno de la app
+    public String imagePath;
+    public String thumbnailPath;
+    public String previewPath;
+
+    public String mimeType;
+    public String extension;
+
+    // URIs de sesión de Storage para reanudar cada subida
+    public String imageSessionUri;
+    public String thumbnailSessionUri;
+
+    public String imageUrl;
+    public String thumbnailUrl;
+
+    @NonNull
+    public String state = STATE_QUEUED;
+
+    public long createdAt;
+}
@@ -0,0 +1,47 @@
+package com.example.application.data;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import java.util.List;
+
+@Dao
+public interface PendingUploadDao {
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insert(PendingUpload upload);
+
+    @Query("SELECT * FROM pending_uploads WHERE uploadId = :uploadId")
+    PendingUpload get(String uploadId);
+
+    // Subidas que todavía deben completarse (todas menos las fallidas)
+    @Query("SELECT * FROM pending_uploads WHERE state != 'failed' ORDER BY createdAt")
+    List<PendingUpload> getResumable();
+
+    // Fallidas de versiones anteriores, que las dejaban en el diario
+    @Query("SELECT * FROM pending_uploads WHERE state = 'failed'")
+    List<PendingUpload> getFailed();
+
+    @Query("UPDATE pending_uploads SET imageSessionUri = :sessionUri WHERE uploadId = :uploadId")
+    void setImageSessionUri(String uploadId, String sessionUri);
+
+    @Query("UPDATE pending_uploads SET thumbnailSessionUri = :sessionUri WHERE uploadId = :uploadId")
+    void setThumbnailSessionUri(String uploadId, String sessionUri);
+
+    @Query("UPDATE pending_uploads SET imageUrl = :url WHERE uploadId = :uploadId")
+    void setImageUrl(String uploadId, String url);
+
+    @Query("UPDATE pending_uploads SET thumbnailUrl = :url WHERE uploadId = :uploadId")
+    void setThumbnailUrl(String uploadId, String url);
+
+    @Query("UPDATE pending_uploads SET state = :state WHERE uploadId = :uploadId")
+    void setState(String uploadId, String state);
+
+    @Query("DELETE FROM pending_uploads WHERE uploadId = :uploadId")
+    void delete(String uploadId);
+
+    @Query("DELETE FROM pending_uploads")
+    void deleteAll();
+}
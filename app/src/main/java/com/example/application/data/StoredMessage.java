@@ -0,0 +1,34 @@
+package com.example.application.data;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * Copia local de un mensaje de Firestore. La tabla guarda, por chat, un tramo
+ * continuo que llega hasta el mensaje más reciente; el índice (chatId, timestamp)
+ * sirve las páginas en el mismo orden que la consulta de Firestore.
+ */
+@Entity(tableName = "messages", indices = {@Index({"chatId", "timestamp"})})
+public class StoredMessage {
+
+    @PrimaryKey
+    @NonNull
+    public String messageId = "";
+
+    @NonNull
+    public String chatId = "";
+
+    public String text;
+    public String senderId;
+    public String senderName;
+
+    // Milisegundos; la hora estimada si el servidor aún no la ha fijado
+    public long timestamp;
+
+    public String type;
+    public String imageUrl;
+    public String thumbnailUrl;
+    public byte[] imagePreview;
+}
@@ -0,0 +1,41 @@
+package com.example.application.data;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import java.util.List;
+
+/**
+ * Páginas por cursor (timestamp, messageId), el mismo orden que
+ * orderBy("timestamp").orderBy(documentId) en Firestore. Devuelven de más
+ * reciente a más antiguo.
+ */
+@Dao
+public interface StoredMessageDao {
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void upsert(List<StoredMessage> messages);
+
+    @Query("SELECT * FROM messages WHERE chatId = :chatId "
+            + "ORDER BY timestamp DESC, messageId DESC LIMIT :limit")
+    List<StoredMessage> getLatest(String chatId, int limit);
+
+    @Query("SELECT * FROM messages WHERE chatId = :chatId "
+            + "AND (timestamp < :timestamp OR (timestamp = :timestamp AND messageId < :messageId)) "
+            + "ORDER BY timestamp DESC, messageId DESC LIMIT :limit")
+    List<StoredMessage> getBefore(String chatId, long timestamp, String messageId, int limit);
+
+    @Query("DELETE FROM messages WHERE messageId = :messageId")
+    void delete(String messageId);
+
+    // Olvida lo anterior al cursor: tras un hueco sin sincronizar, la tabla vuelve a
+    // ser un tramo continuo hasta el mensaje más reciente
+    @Query("DELETE FROM messages WHERE chatId = :chatId "
+            + "AND (timestamp < :timestamp OR (timestamp = :timestamp AND messageId < :messageId))")
+    void deleteBefore(String chatId, long timestamp, String messageId);
+
+    @Query("DELETE FROM messages")
+    void deleteAll();
+}
@@ -13,11 +13,9 @@ public class Chat {
     private String otherUserEmail;
     private String otherUserId;
     private int unreadCount;
-    private boolean otherUserOnline;
 
     public Chat() {
         // Constructor vacío requerido para Firestore
-        this.otherUserOnline = false;
     }
 
     public Chat(String chatId, List<String> participants, String lastMessage, 
@@ -30,6 +28,19 @@ public class Chat {
         this.unreadCount = 0;
     }
 
+    // Constructor de copia, para reemplazar un chat sin mutar la instancia que ya muestra el adapter
+    public Chat(Chat other) {
+        this.chatId = other.chatId;
+        this.participants = other.participants;
+        this.lastMessage = other.lastMessage;
+        this.lastMessageTime = other.lastMessageTime;
+        this.lastMessageSenderId = other.lastMessageSenderId;
+        this.otherUserName = other.otherUserName;
+        this.otherUserEmail = other.otherUserEmail;
+        this.otherUserId = other.otherUserId;
+        this.unreadCount = other.unreadCount;
+    }
+
     // Getters y Setters
     public String getChatId() {
         return chatId;
@@ -103,14 +114,6 @@ public class Chat {
         this.otherUserId = otherUserId;
     }
 
-    public boolean isOtherUserOnline() {
-        return otherUserOnline;
-    }
-
-    public void setOtherUserOnline(boolean otherUserOnline) {
-        this.otherUserOnline = otherUserOnline;
-    }
-
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
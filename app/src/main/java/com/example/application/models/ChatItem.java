@@ -1,27 +1,51 @@
 package com.example.application.models;
 
+import com.example.application.utils.DayKeys;
+
 import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class ChatItem {
     public static final int TYPE_MESSAGE = 0;
     public static final int TYPE_DATE_SEPARATOR = 1;
 
+    // Tipos de vista de MessageAdapter, resueltos al crear el item
+    public static final int VIEW_TYPE_SENT = 1;
+    public static final int VIEW_TYPE_RECEIVED = 2;
+    public static final int VIEW_TYPE_DATE_SEPARATOR = 3;
+    public static final int VIEW_TYPE_IMAGE_SENT = 4;
+    public static final int VIEW_TYPE_IMAGE_RECEIVED = 5;
+
+    // IDs estables: mensajes >= 0 (hash del messageId), separadores < 0 (por día)
+    private static final long DAY_SEPARATOR_ID_BASE = Long.MIN_VALUE / 2;
+    // Separadores sin fecha: uno distinto cada vez, desde -1 hacia abajo
+    private static final AtomicLong NEXT_UNDATED_SEPARATOR_ID = new AtomicLong(-1);
+
     private int type;
     private Message message;
-    private String dateText;
     private Date date;
+    private int dayKey = DayKeys.NO_DAY;
+    private final int viewType;
+    private final long stableId;
 
     // Constructor para mensajes
-    public ChatItem(Message message) {
+    public ChatItem(Message message, String currentUserId) {
         this.type = TYPE_MESSAGE;
         this.message = message;
+        this.viewType = resolveViewType(message, currentUserId);
+        this.stableId = messageStableId(message.getMessageId());
     }
 
-    // Constructor para separadores de fecha
-    public ChatItem(String dateText, Date date) {
+    // Constructor para separadores de fecha. El texto ("Hoy", "Ayer"...) depende del
+    // día actual, así que no se guarda: se forma al enlazar la fila
+    public ChatItem(Date date) {
         this.type = TYPE_DATE_SEPARATOR;
-        this.dateText = dateText;
         this.date = date;
+        this.dayKey = DayKeys.of(date);
+        this.viewType = VIEW_TYPE_DATE_SEPARATOR;
+        this.stableId = date != null
+                ? DAY_SEPARATOR_ID_BASE + dayKey
+                : NEXT_UNDATED_SEPARATOR_ID.getAndDecrement();
     }
 
     public int getType() {
@@ -32,11 +56,43 @@ public class ChatItem {
         return message;
     }
 
-    public String getDateText() {
-        return dateText;
-    }
-
     public Date getDate() {
         return date;
     }
+
+    public int getDayKey() {
+        return dayKey;
+    }
+
+    public int getViewType() {
+        return viewType;
+    }
+
+    public long getStableId() {
+        return stableId;
+    }
+
+    private static int resolveViewType(Message message, String currentUserId) {
+        String senderId = message.getSenderId();
+        boolean isSent = senderId != null && senderId.equals(currentUserId);
+        boolean isImage = "image".equals(message.getType());
+        if (isImage) {
+            return isSent ? VIEW_TYPE_IMAGE_SENT : VIEW_TYPE_IMAGE_RECEIVED;
+        } else {
+            return isSent ? VIEW_TYPE_SENT : VIEW_TYPE_RECEIVED;
+        }
+    }
+
+    // FNV-1a de 64 bits: con miles de mensajes la probabilidad de colisión es despreciable
+    private static long messageStableId(String messageId) {
+        if (messageId == null) {
+            return 0;
+        }
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < messageId.length(); i++) {
+            hash ^= messageId.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash & Long.MAX_VALUE;
+    }
 }
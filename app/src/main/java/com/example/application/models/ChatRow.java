@@ -0,0 +1,91 @@
+package com.example.application.models;
+
+import com.example.application.utils.DateFormats;
+
+import java.util.Date;
+
+/**
+ * Fila de la lista de chats con lo que se pinta ya calculado: iniciales, color del
+ * avatar y texto de tiempo relativo. Se crea una vez por cambio de datos, no en
+ * cada bind.
+ *
+ * El texto de tiempo guarda hasta cuándo es válido ("5 min" hasta que se cumple el
+ * minuto 6), así el tick de cada minuto solo recalcula las filas que cambian.
+ * Inmutable: el diff la lee en segundo plano, y un texto nuevo es una fila nueva
+ * (atTime) que se envía al adapter como cualquier otro cambio.
+ */
+public class ChatRow {
+
+    private static final long MINUTE = 60_000L;
+    private static final long HOUR = 60 * MINUTE;
+    private static final long DAY = 24 * HOUR;
+
+    private final Chat chat;
+    private final String initials;
+    private final int avatarColor;
+    private final String timeLabel;
+    private final long timeLabelValidUntil;
+
+    public ChatRow(Chat chat, String initials, int avatarColor, long now) {
+        this.chat = chat;
+        this.initials = initials;
+        this.avatarColor = avatarColor;
+
+        Date date = chat.getLastMessageTime();
+        if (date == null) {
+            timeLabel = "Ahora";
+            timeLabelValidUntil = Long.MAX_VALUE;
+            return;
+        }
+
+        long time = date.getTime();
+        long diff = now - time;
+        long minutes = diff / MINUTE;
+        long hours = diff / HOUR;
+        long days = diff / DAY;
+
+        if (minutes < 1) {
+            timeLabel = "Ahora";
+            timeLabelValidUntil = time + MINUTE;
+        } else if (minutes < 60) {
+            timeLabel = minutes + " min";
+            timeLabelValidUntil = time + (minutes + 1) * MINUTE;
+        } else if (hours < 24) {
+            timeLabel = hours + " hr";
+            timeLabelValidUntil = time + (hours + 1) * HOUR;
+        } else if (days < 7) {
+            timeLabel = days + " day" + (days > 1 ? "s" : "");
+            timeLabelValidUntil = time + (days + 1) * DAY;
+        } else {
+            timeLabel = DateFormats.formatShortDate(date);
+            timeLabelValidUntil = Long.MAX_VALUE;
+        }
+    }
+
+    public Chat getChat() {
+        return chat;
+    }
+
+    public String getInitials() {
+        return initials;
+    }
+
+    public int getAvatarColor() {
+        return avatarColor;
+    }
+
+    public String getTimeLabel() {
+        return timeLabel;
+    }
+
+    /**
+     * La fila con el texto de tiempo en now: la misma si aún es válido, o una
+     * copia con el texto recalculado si ha caducado.
+     */
+    public ChatRow atTime(long now) {
+        if (now < timeLabelValidUntil) {
+            return this;
+        }
+        return new ChatRow(chat, initials, avatarColor, now);
+    }
+}
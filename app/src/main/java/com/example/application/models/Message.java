@@ -8,9 +8,12 @@ public class Message {
     private String senderId;
     private String senderName;
     private Date timestamp;
-    private boolean read;
     private String type; // "text" o "image"
     private String imageUrl; // URL de la imagen si es tipo image
+    private String thumbnailUrl; // Miniatura para la burbuja del chat
+    private byte[] imagePreview; // Vista previa diminuta guardada en el propio mensaje
+    private boolean pending; // Aún no confirmado por el servidor
+    private boolean failed; // Rechazado por el servidor: no se enviará
 
     public Message() {
         // Constructor vacío requerido para Firestore
@@ -21,7 +24,6 @@ public class Message {
         this.senderId = senderId;
         this.senderName = senderName;
         this.timestamp = timestamp;
-        this.read = false;
         this.type = "text";
         this.imageUrl = null;
     }
@@ -67,14 +69,6 @@ public class Message {
         this.timestamp = timestamp;
     }
 
-    public boolean isRead() {
-        return read;
-    }
-
-    public void setRead(boolean read) {
-        this.read = read;
-    }
-
     public String getType() {
         return type;
     }
@@ -90,4 +84,36 @@ public class Message {
     public void setImageUrl(String imageUrl) {
         this.imageUrl = imageUrl;
     }
+
+    public String getThumbnailUrl() {
+        return thumbnailUrl;
+    }
+
+    public void setThumbnailUrl(String thumbnailUrl) {
+        this.thumbnailUrl = thumbnailUrl;
+    }
+
+    public byte[] getImagePreview() {
+        return imagePreview;
+    }
+
+    public void setImagePreview(byte[] imagePreview) {
+        this.imagePreview = imagePreview;
+    }
+
+    public boolean isPending() {
+        return pending;
+    }
+
+    public void setPending(boolean pending) {
+        this.pending = pending;
+    }
+
+    public boolean isFailed() {
+        return failed;
+    }
+
+    public void setFailed(boolean failed) {
+        this.failed = failed;
+    }
 }
@@ -0,0 +1,168 @@
+package com.example.application.repositories;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.AtomicFile;
+import android.util.Log;
+
+import com.example.application.models.Chat;
+import com.example.application.utils.DebugLog;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Última lista de chats pintada, guardada en un fichero binario compacto para
+ * mostrarla al instante en el arranque en frío, antes de que responda Firestore.
+ *
+ * La lectura es síncrona (el fichero ocupa unos pocos KB); la escritura se hace
+ * en segundo plano y de forma atómica con AtomicFile.
+ */
+public class ChatListCache {
+
+    private static final String TAG = "ChatListCache";
+    private static final String FILE_NAME = "chat_list.bin";
+    // Cambiar al modificar el formato: un fichero de otra versión se ignora
+    private static final int FORMAT_VERSION = 1;
+    // Solo se muestra una línea del último mensaje
+    private static final int MAX_PREVIEW_LENGTH = 200;
+
+    private static ChatListCache instance;
+
+    private final AtomicFile file;
+    private final Executor writeExecutor = Executors.newSingleThreadExecutor();
+
+    private ChatListCache(Context context) {
+        file = new AtomicFile(new File(context.getApplicationContext().getFilesDir(), FILE_NAME));
+    }
+
+    public static synchronized ChatListCache getInstance(Context context) {
+        if (instance == null) {
+            instance = new ChatListCache(context);
+        }
+        return instance;
+    }
+
+    /**
+     * Lee la lista guardada para el usuario. Devuelve una lista vacía si no hay
+     * caché, es de otro usuario o no se puede leer.
+     */
+    public List<Chat> read(String userId) {
+        long start = SystemClock.elapsedRealtime();
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(file.openRead()))) {
+            if (input.readInt() != FORMAT_VERSION || !userId.equals(input.readUTF())) {
+                return Collections.emptyList();
+            }
+            int count = input.readInt();
+            List<Chat> chats = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                chats.add(readChat(input));
+            }
+            if (DebugLog.ENABLED) {
+                DebugLog.d(TAG, count + " chats leídos de caché en " + (SystemClock.elapsedRealtime() - start) + " ms");
+            }
+            return chats;
+        } catch (FileNotFoundException e) {
+            return Collections.emptyList();
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Caché de chats no válida", e);
+            return Collections.emptyList();
+        }
+    }
+
+    public void writeAsync(String userId, List<Chat> chats) {
+        final List<Chat> snapshot = new ArrayList<>(chats);
+        writeExecutor.execute(() -> write(userId, snapshot));
+    }
+
+    // Al cerrar sesión: la lista no debe quedar en el dispositivo
+    public void clear() {
+        writeExecutor.execute(file::delete);
+    }
+
+    private void write(String userId, List<Chat> chats) {
+        FileOutputStream stream = null;
+        try {
+            stream = file.startWrite();
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(stream));
+            output.writeInt(FORMAT_VERSION);
+            output.writeUTF(userId);
+            output.writeInt(chats.size());
+            for (Chat chat : chats) {
+                writeChat(output, chat);
+            }
+            output.flush();
+            file.finishWrite(stream);
+        } catch (IOException e) {
+            Log.e(TAG, "Error al guardar la caché de chats", e);
+            if (stream != null) {
+                file.failWrite(stream);
+            }
+        }
+    }
+
+    private static void writeChat(DataOutputStream output, Chat chat) throws IOException {
+        writeString(output, chat.getChatId());
+        List<String> participants = chat.getParticipants();
+        output.writeInt(participants != null ? participants.size() : 0);
+        if (participants != null) {
+            for (String participant : participants) {
+                writeString(output, participant);
+            }
+        }
+        String lastMessage = chat.getLastMessage();
+        if (lastMessage != null && lastMessage.length() > MAX_PREVIEW_LENGTH) {
+            lastMessage = lastMessage.substring(0, MAX_PREVIEW_LENGTH);
+        }
+        writeString(output, lastMessage);
+        output.writeLong(chat.getLastMessageTime() != null ? chat.getLastMessageTime().getTime() : -1);
+        writeString(output, chat.getLastMessageSenderId());
+        writeString(output, chat.getOtherUserId());
+        writeString(output, chat.getOtherUserName());
+        writeString(output, chat.getOtherUserEmail());
+        output.writeInt(chat.getUnreadCount());
+    }
+
+    private static Chat readChat(DataInputStream input) throws IOException {
+        Chat chat = new Chat();
+        chat.setChatId(readString(input));
+        int participantCount = input.readInt();
+        List<String> participants = new ArrayList<>(participantCount);
+        for (int i = 0; i < participantCount; i++) {
+            participants.add(readString(input));
+        }
+        chat.setParticipants(participants);
+        chat.setLastMessage(readString(input));
+        long lastMessageTime = input.readLong();
+        chat.setLastMessageTime(lastMessageTime >= 0 ? new Date(lastMessageTime) : null);
+        chat.setLastMessageSenderId(readString(input));
+        chat.setOtherUserId(readString(input));
+        chat.setOtherUserName(readString(input));
+        chat.setOtherUserEmail(readString(input));
+        chat.setUnreadCount(input.readInt());
+        return chat;
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        output.writeBoolean(value != null);
+        if (value != null) {
+            output.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream input) throws IOException {
+        return input.readBoolean() ? input.readUTF() : null;
+    }
+}
@@ -0,0 +1,356 @@
+package com.example.application.repositories;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.application.models.Chat;
+import com.example.application.models.User;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Mantiene la lista de chats del usuario actual con un único snapshot listener
+ * sobre la colección "chats". Cada snapshot se aplica como deltas
+ * (añadido/modificado/eliminado) sobre un modelo en memoria, por lo que una
+ * pantalla abierta sin cambios no genera lecturas. Los no leídos vienen del
+ * contador unreadCount del propio documento, sin leer mensajes, y el nombre del
+ * otro usuario de participantNames, sin leer su perfil.
+ */
+public class ChatListRepository {
+
+    private static final String TAG = "ChatListRepository";
+
+    private static ChatListRepository instance;
+
+    private static final int MAX_BATCH_WRITES = 500;
+
+    public interface Listener {
+        void onChatsChanged(List<Chat> chats);
+
+        void onError(Exception e);
+    }
+
+    // Ordenar por fecha del último mensaje (los chats sin mensajes van al final)
+    private static final Comparator<Chat> BY_LAST_MESSAGE_TIME = (c1, c2) -> {
+        if (c1.getLastMessageTime() == null) return c2.getLastMessageTime() == null ? 0 : 1;
+        if (c2.getLastMessageTime() == null) return -1;
+        return c2.getLastMessageTime().compareTo(c1.getLastMessageTime());
+    };
+
+    private final FirebaseFirestore db;
+    // Un solo hilo: los resultados se entregan en el mismo orden que los snapshots
+    private final Executor sortExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Map<String, Chat> chats = new HashMap<>();
+    // Perfiles del otro usuario, compartidos con el resto de la app
+    private final UserRepository userRepository;
+
+    private ListenerRegistration registration;
+    private String currentUserId;
+    private Listener listener;
+    // El modelo viene de la caché en disco: al llegar el primer snapshot del
+    // servidor se quitan los chats que ya no existen
+    private boolean pruneSeededChats;
+    // Nombre propio actual y el que guarda cada chat (participantNames.{uid}), para
+    // propagar un cambio de nombre a todos los chats del usuario
+    private String ownName;
+    private final Map<String, String> ownNameByChat = new HashMap<>();
+    private final java.util.Set<String> ownNameSyncRequested = new java.util.HashSet<>();
+
+    private ChatListRepository(Context context) {
+        db = FirebaseFirestore.getInstance();
+        userRepository = UserRepository.getInstance(context);
+    }
+
+    public static synchronized ChatListRepository getInstance(Context context) {
+        if (instance == null) {
+            instance = new ChatListRepository(context);
+        }
+        return instance;
+    }
+
+    /**
+     * Empieza a escuchar los chats del usuario. Si ya había un modelo en memoria
+     * para el mismo usuario, se entrega inmediatamente.
+     */
+    public void start(String userId, Listener listener) {
+        if (!userId.equals(currentUserId)) {
+            // Cambio de usuario: descartar el modelo anterior
+            stop();
+            resetFor(userId);
+        }
+        // Después de stop(), que suelta el listener anterior
+        this.listener = listener;
+        if (!chats.isEmpty()) {
+            dispatch();
+        }
+
+        if (registration != null) {
+            return;
+        }
+
+        if (ownName == null) {
+            // Del servidor: con un nombre caducado de la caché se podría deshacer un cambio
+            final String requestedFor = userId;
+            userRepository.fetch(userId, user -> {
+                if (user != null && requestedFor.equals(currentUserId)) {
+                    ownName = user.getName();
+                    syncOwnName();
+                }
+            });
+        }
+
+        registration = db.collection("chats")
+                .whereArrayContains("participants", userId)
+                .addSnapshotListener((snapshots, error) -> {
+                    if (error != null) {
+                        Log.e(TAG, "Error en el listener de chats", error);
+                        if (this.listener != null) {
+                            this.listener.onError(error);
+                        }
+                        return;
+                    }
+                    if (snapshots != null) {
+                        applyChanges(snapshots);
+                    }
+                });
+    }
+
+    public boolean hasChats(String userId) {
+        return userId.equals(currentUserId) && !chats.isEmpty();
+    }
+
+    /**
+     * Rellena el modelo con la lista guardada en disco (ChatListCache) antes del
+     * primer snapshot, para que los datos ya conocidos (nombres) no desaparezcan
+     * al reconciliar con Firestore.
+     */
+    public void seed(String userId, List<Chat> cachedChats) {
+        if (!userId.equals(currentUserId)) {
+            stop();
+            resetFor(userId);
+        }
+        if (!chats.isEmpty()) {
+            return;
+        }
+        for (Chat chat : cachedChats) {
+            chats.put(chat.getChatId(), chat);
+        }
+        pruneSeededChats = true;
+    }
+
+    // Todo el estado por usuario: el modelo, la poda pendiente y la sincronización del nombre propio
+    private void resetFor(String userId) {
+        chats.clear();
+        currentUserId = userId;
+        pruneSeededChats = false;
+        ownName = null;
+        ownNameByChat.clear();
+        ownNameSyncRequested.clear();
+    }
+
+    /**
+     * Deja de escuchar cambios. El modelo en memoria se conserva para que la
+     * siguiente pantalla lo pinte sin esperar a la red.
+     */
+    public void stop() {
+        if (registration != null) {
+            registration.remove();
+            registration = null;
+        }
+        listener = null;
+    }
+
+    private void applyChanges(QuerySnapshot snapshots) {
+        if (pruneSeededChats && !snapshots.getMetadata().isFromCache()) {
+            pruneSeededChats = false;
+            java.util.Set<String> current = new java.util.HashSet<>();
+            for (DocumentSnapshot doc : snapshots.getDocuments()) {
+                current.add(doc.getId());
+            }
+            chats.keySet().retainAll(current);
+        }
+
+        for (DocumentChange change : snapshots.getDocumentChanges()) {
+            DocumentSnapshot doc = change.getDocument();
+            String chatId = doc.getId();
+
+            // Los alias de chats migrados no se muestran: el chat real ya está en la lista
+            if (change.getType() == DocumentChange.Type.REMOVED
+                    || doc.contains(DirectChatRepository.FIELD_LEGACY_CHAT_ID)) {
+                chats.remove(chatId);
+                ownNameByChat.remove(chatId);
+                continue;
+            }
+            ownNameByChat.put(chatId, doc.getString(participantNameField(currentUserId)));
+
+            Chat previous = chats.get(chatId);
+            Chat chat = toChat(doc, previous);
+            chats.put(chatId, chat);
+
+            // Chats 1:1 antiguos con ID automático: crear su alias determinista
+            if (previous == null) {
+                DirectChatRepository.getInstance().migrateLegacyChat(chatId, chat.getParticipants());
+            }
+
+            String otherUserId = chat.getOtherUserId();
+            if (otherUserId == null) {
+                continue;
+            }
+
+            // El nombre ya viene en el chat: no hace falta leer el usuario
+            String otherUserName = doc.getString(participantNameField(otherUserId));
+            if (otherUserName != null) {
+                chat.setOtherUserName(otherUserName);
+                continue;
+            }
+
+            // Chats sin participantNames: de la caché compartida o en el siguiente lote
+            User user = userRepository.peek(otherUserId);
+            if (user != null) {
+                applyUser(chat, user);
+            } else {
+                loadUser(chatId, otherUserId);
+            }
+        }
+
+        syncOwnName();
+        dispatch();
+    }
+
+    private static String participantNameField(String userId) {
+        return DirectChatRepository.FIELD_PARTICIPANT_NAMES + "." + userId;
+    }
+
+    /**
+     * Escribe el nombre propio en los chats donde falta o está desactualizado. Cada
+     * cliente mantiene solo su propia entrada de participantNames, así un cambio de
+     * nombre se propaga a todos sus chats la próxima vez que se abre la lista.
+     */
+    private void syncOwnName() {
+        if (ownName == null || currentUserId == null) {
+            return;
+        }
+        WriteBatch batch = null;
+        int writes = 0;
+        for (Map.Entry<String, String> entry : ownNameByChat.entrySet()) {
+            String chatId = entry.getKey();
+            if (ownName.equals(entry.getValue()) || !ownNameSyncRequested.add(chatId + "/" + ownName)) {
+                continue;
+            }
+            if (batch == null) {
+                batch = db.batch();
+            }
+            batch.update(db.collection("chats").document(chatId), participantNameField(currentUserId), ownName);
+            // Límite de escrituras por batch de Firestore
+            if (++writes == MAX_BATCH_WRITES) {
+                commitNameBatch(batch);
+                batch = null;
+                writes = 0;
+            }
+        }
+        if (batch != null) {
+            commitNameBatch(batch);
+        }
+    }
+
+    private void commitNameBatch(WriteBatch batch) {
+        batch.commit().addOnFailureListener(e -> Log.e(TAG, "Error al actualizar el nombre en los chats", e));
+    }
+
+    private Chat toChat(DocumentSnapshot doc, Chat previous) {
+        // Siempre una instancia nueva para que el DiffUtil del adapter detecte el cambio
+        Chat chat = previous != null ? new Chat(previous) : new Chat();
+        chat.setChatId(doc.getId());
+        chat.setParticipants((List<String>) doc.get("participants"));
+        chat.setLastMessage(doc.getString("lastMessage"));
+        chat.setLastMessageSenderId(doc.getString("lastMessageSenderId"));
+
+        com.google.firebase.Timestamp timestamp = doc.getTimestamp("lastMessageTime");
+        chat.setLastMessageTime(timestamp != null ? timestamp.toDate() : null);
+
+        // Contador de no leídos desnormalizado en el propio chat (unreadCount.{uid})
+        Long unread = doc.getLong("unreadCount." + currentUserId);
+        chat.setUnreadCount(unread != null ? unread.intValue() : 0);
+
+        List<String> participants = chat.getParticipants();
+        if (participants != null && participants.size() == 2) {
+            chat.setOtherUserId(participants.get(0).equals(currentUserId)
+                    ? participants.get(1) : participants.get(0));
+        }
+        return chat;
+    }
+
+    private void loadUser(String chatId, String otherUserId) {
+        final String requestedFor = currentUserId;
+        userRepository.get(otherUserId, user -> {
+            if (!requestedFor.equals(currentUserId)) {
+                return;
+            }
+            if (user != null) {
+                updateChat(chatId, chat -> applyUser(chat, user));
+            } else {
+                Log.e(TAG, "No se pudo cargar el usuario " + otherUserId);
+                updateChat(chatId, chat -> {
+                    if (chat.getOtherUserName() == null) {
+                        chat.setOtherUserName("Usuario");
+                        chat.setOtherUserEmail("");
+                    }
+                });
+            }
+        });
+    }
+
+    private interface ChatMutation {
+        void apply(Chat chat);
+    }
+
+    // Reemplaza el chat por una copia modificada y notifica
+    private void updateChat(String chatId, ChatMutation mutation) {
+        Chat current = chats.get(chatId);
+        if (current == null) {
+            return;
+        }
+        Chat updated = new Chat(current);
+        mutation.apply(updated);
+        chats.put(chatId, updated);
+        dispatch();
+    }
+
+    private void applyUser(Chat chat, User user) {
+        chat.setOtherUserName(user.getName());
+        chat.setOtherUserEmail(user.getEmail());
+    }
+
+    // Ordena en segundo plano y entrega el resultado en el hilo principal
+    private void dispatch() {
+        if (listener == null) {
+            return;
+        }
+        final Listener target = listener;
+        final List<Chat> chatList = new ArrayList<>(chats.values());
+        sortExecutor.execute(() -> {
+            chatList.sort(BY_LAST_MESSAGE_TIME);
+            mainHandler.post(() -> {
+                // Descartar resultados de un listener que ya se quitó
+                if (listener == target) {
+                    target.onChatsChanged(chatList);
+                }
+            });
+        });
+    }
+}
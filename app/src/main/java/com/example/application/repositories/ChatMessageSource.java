@@ -0,0 +1,389 @@
+package com.example.application.repositories;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.application.data.AppDatabase;
+import com.example.application.data.StoredMessage;
+import com.example.application.data.StoredMessageDao;
+import com.example.application.models.Message;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.Query;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Fuente paginada de mensajes de un chat, con la base de datos local como
+ * fuente de verdad.
+ *
+ * Al abrir, la página más reciente sale de una sola consulta indexada a la tabla
+ * local, sin esperar a la red. Después, un único listener de Firestore trae solo
+ * los mensajes posteriores al más nuevo guardado (como mucho una página), los
+ * guarda y los entrega como deltas. Las páginas anteriores se leen primero de la tabla local y solo se
+ * piden a Firestore (endBefore) cuando la copia local no llega tan atrás.
+ *
+ * La tabla guarda siempre un tramo continuo hasta el mensaje más reciente, así
+ * que el historial ya visto se puede leer sin conexión.
+ */
+public class ChatMessageSource {
+
+    private static final String TAG = "ChatMessageSource";
+
+    public static final int PAGE_SIZE = 50;
+
+    // Las lecturas y escrituras locales van en orden por un único hilo
+    private static final Executor DB_EXECUTOR = Executors.newSingleThreadExecutor();
+
+    public interface Callback {
+        // Página más reciente, en orden cronológico. Puede volver a llamarse si al
+        // sincronizar llegan más mensajes de los que caben en una página
+        void onInitialPage(List<Message> messages);
+
+        // Página anterior a la más antigua cargada, en orden cronológico
+        void onOlderPage(List<Message> messages);
+
+        // Deltas del listener en vivo (mensajes posteriores a la primera página)
+        void onMessageAdded(Message message);
+
+        void onMessageModified(Message message);
+
+        void onMessageRemoved(String messageId);
+
+        void onError(Exception e);
+    }
+
+    // Posición de un mensaje en el orden (timestamp, ID)
+    private static class Cursor {
+        final Date timestamp;
+        final String messageId;
+
+        Cursor(Date timestamp, String messageId) {
+            this.timestamp = timestamp;
+            this.messageId = messageId;
+        }
+
+        static Cursor of(Message message) {
+            Date timestamp = message.getTimestamp() != null ? message.getTimestamp() : new Date(0);
+            return new Cursor(timestamp, message.getMessageId());
+        }
+    }
+
+    private final String chatId;
+    private final CollectionReference messagesRef;
+    private final StoredMessageDao dao;
+    private final Callback callback;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private Cursor oldestLoaded;
+    private ListenerRegistration liveListener;
+    private boolean loadingOlder;
+    private boolean hasMoreOlder = true;
+    private boolean released;
+
+    public ChatMessageSource(Context context, FirebaseFirestore db, String chatId, Callback callback) {
+        this.chatId = chatId;
+        this.messagesRef = db.collection("chats").document(chatId).collection("messages");
+        this.dao = AppDatabase.getInstance(context).storedMessageDao();
+        this.callback = callback;
+    }
+
+    public void start() {
+        DB_EXECUTOR.execute(() -> {
+            List<Message> local = toMessages(dao.getLatest(chatId, PAGE_SIZE));
+            mainHandler.post(() -> {
+                if (released) {
+                    return;
+                }
+                if (local.isEmpty()) {
+                    // Primera vez en este chat: la primera página viene de Firestore
+                    loadInitialPageFromServer();
+                    return;
+                }
+                oldestLoaded = Cursor.of(local.get(0));
+                callback.onInitialPage(local);
+                listenForNewMessages(Cursor.of(local.get(local.size() - 1)));
+            });
+        });
+    }
+
+    private void loadInitialPageFromServer() {
+        orderedQuery()
+                .limitToLast(PAGE_SIZE)
+                .get()
+                .addOnSuccessListener(snapshots -> {
+                    if (released) {
+                        return;
+                    }
+                    List<Message> messages = fromSnapshots(snapshots.getDocuments());
+                    hasMoreOlder = messages.size() == PAGE_SIZE;
+                    persist(messages);
+                    if (!messages.isEmpty()) {
+                        oldestLoaded = Cursor.of(messages.get(0));
+                    }
+                    Cursor newest = newestCommitted(messages);
+                    callback.onInitialPage(messages);
+                    listenForNewMessages(newest);
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Error al cargar la primera página", e);
+                    if (!released) {
+                        callback.onError(e);
+                    }
+                });
+    }
+
+    /**
+     * Pide la página anterior a la más antigua cargada. Se ignora si ya hay una
+     * petición en curso o si no quedan mensajes más antiguos.
+     */
+    public void loadOlder() {
+        if (loadingOlder || !hasMoreOlder || oldestLoaded == null || released) {
+            return;
+        }
+        loadingOlder = true;
+        Cursor before = oldestLoaded;
+        DB_EXECUTOR.execute(() -> {
+            List<Message> local = toMessages(dao.getBefore(chatId, before.timestamp.getTime(),
+                    before.messageId, PAGE_SIZE));
+            mainHandler.post(() -> {
+                if (released) {
+                    return;
+                }
+                if (local.size() == PAGE_SIZE) {
+                    deliverOlder(local);
+                } else {
+                    // La copia local no llega tan atrás: completar con Firestore
+                    loadOlderFromServer(local.isEmpty() ? before : Cursor.of(local.get(0)), local);
+                }
+            });
+        });
+    }
+
+    private void loadOlderFromServer(Cursor before, List<Message> local) {
+        int limit = PAGE_SIZE - local.size();
+        orderedQuery()
+                .endBefore(new com.google.firebase.Timestamp(before.timestamp), before.messageId)
+                .limitToLast(limit)
+                .get()
+                .addOnSuccessListener(snapshots -> {
+                    if (released) {
+                        return;
+                    }
+                    List<Message> remote = fromSnapshots(snapshots.getDocuments());
+                    hasMoreOlder = remote.size() == limit;
+                    persist(remote);
+                    List<Message> page = new ArrayList<>(remote);
+                    page.addAll(local);
+                    deliverOlder(page);
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Error al cargar mensajes anteriores", e);
+                    // Sin conexión: al menos lo que hay en local
+                    deliverOlder(local);
+                });
+    }
+
+    private void deliverOlder(List<Message> page) {
+        loadingOlder = false;
+        if (released || page.isEmpty()) {
+            return;
+        }
+        oldestLoaded = Cursor.of(page.get(0));
+        callback.onOlderPage(page);
+    }
+
+    /**
+     * Borra la copia local de los mensajes de todos los chats (al cerrar sesión).
+     * Va por el mismo hilo que las escrituras, así que ninguna pendiente la rellena
+     * después.
+     */
+    public static void clearStore(Context context) {
+        StoredMessageDao dao = AppDatabase.getInstance(context).storedMessageDao();
+        DB_EXECUTOR.execute(dao::deleteAll);
+    }
+
+    public boolean hasMoreOlder() {
+        return hasMoreOlder;
+    }
+
+    public void release() {
+        released = true;
+        if (liveListener != null) {
+            liveListener.remove();
+            liveListener = null;
+        }
+    }
+
+    /**
+     * Listener de los mensajes posteriores al más nuevo guardado, limitado a la
+     * última página: tras mucho tiempo sin abrir el chat no se descargan todos los
+     * que faltan. Si la ventana llega llena, los anteriores a ella se piden después
+     * paginando, como cualquier página antigua.
+     */
+    private void listenForNewMessages(Cursor newest) {
+        Query query = orderedQuery();
+        if (newest != null) {
+            query = query.startAfter(new com.google.firebase.Timestamp(newest.timestamp), newest.messageId);
+        }
+        boolean[] firstSnapshot = {true};
+        liveListener = query.limitToLast(PAGE_SIZE).addSnapshotListener((snapshots, error) -> {
+            if (error != null) {
+                Log.e(TAG, "Error en el listener de mensajes nuevos", error);
+                callback.onError(error);
+                return;
+            }
+            if (snapshots == null) {
+                return;
+            }
+            List<DocumentChange> changes = snapshots.getDocumentChanges();
+            List<DocumentSnapshot> window = snapshots.getDocuments();
+            boolean catchUp = firstSnapshot[0];
+            firstSnapshot[0] = false;
+
+            // Con la ventana llena, un documento que sale por delante de ella no se ha
+            // borrado: solo ha dejado sitio a uno nuevo
+            DocumentSnapshot windowStart = window.size() == PAGE_SIZE ? window.get(0) : null;
+
+            // Solo se convierten y guardan los documentos que cambiaron
+            List<DocumentChange> delivered = new ArrayList<>(changes.size());
+            List<Message> changed = new ArrayList<>();
+            List<String> removed = new ArrayList<>();
+            for (DocumentChange change : changes) {
+                if (change.getType() == DocumentChange.Type.REMOVED) {
+                    if (windowStart != null && isBefore(change.getDocument(), windowStart)) {
+                        continue;
+                    }
+                    removed.add(change.getDocument().getId());
+                } else {
+                    changed.add(MessageMapper.fromSnapshot(change.getDocument()));
+                }
+                delivered.add(change);
+            }
+
+            // Al volver a abrir tras mucho tiempo la ventana llega llena: puede haber
+            // mensajes entre el más nuevo guardado y ella. Se olvida lo anterior para
+            // que la tabla siga siendo un tramo continuo (loadOlder lo pedirá a
+            // Firestore) y se muestra la ventana como página más reciente
+            if (catchUp && newest != null && windowStart != null) {
+                Message first = MessageMapper.fromSnapshot(windowStart);
+                DB_EXECUTOR.execute(() -> dao.deleteBefore(chatId,
+                        first.getTimestamp() != null ? first.getTimestamp().getTime() : 0,
+                        first.getMessageId()));
+                persist(changed);
+                hasMoreOlder = true;
+                reloadLatestPage();
+                return;
+            }
+
+            persist(changed);
+            if (!removed.isEmpty()) {
+                DB_EXECUTOR.execute(() -> {
+                    for (String messageId : removed) {
+                        dao.delete(messageId);
+                    }
+                });
+            }
+
+            int next = 0;
+            for (DocumentChange change : delivered) {
+                switch (change.getType()) {
+                    case ADDED:
+                        callback.onMessageAdded(changed.get(next++));
+                        break;
+                    case MODIFIED:
+                        callback.onMessageModified(changed.get(next++));
+                        break;
+                    case REMOVED:
+                        callback.onMessageRemoved(change.getDocument().getId());
+                        break;
+                }
+            }
+        });
+    }
+
+    private void reloadLatestPage() {
+        DB_EXECUTOR.execute(() -> {
+            List<Message> local = toMessages(dao.getLatest(chatId, PAGE_SIZE));
+            mainHandler.post(() -> {
+                if (released || local.isEmpty()) {
+                    return;
+                }
+                oldestLoaded = Cursor.of(local.get(0));
+                callback.onInitialPage(local);
+            });
+        });
+    }
+
+    // Orden (timestamp, ID) de la consulta: a va antes que b
+    private static boolean isBefore(DocumentSnapshot a, DocumentSnapshot b) {
+        Cursor first = Cursor.of(MessageMapper.fromSnapshot(a));
+        Cursor second = Cursor.of(MessageMapper.fromSnapshot(b));
+        int byTime = first.timestamp.compareTo(second.timestamp);
+        return byTime != 0 ? byTime < 0 : first.messageId.compareTo(second.messageId) < 0;
+    }
+
+    // Mismo orden que el índice local: timestamp y, para empates, ID del documento
+    private Query orderedQuery() {
+        return messagesRef.orderBy("timestamp", Query.Direction.ASCENDING)
+                .orderBy(FieldPath.documentId(), Query.Direction.ASCENDING);
+    }
+
+    /**
+     * Guarda los mensajes confirmados por el servidor. Los propios aún pendientes
+     * llevan una hora estimada: si se guardaran, el cursor del listener podría
+     * quedar por delante de mensajes reales y saltárselos. Se guardan cuando el
+     * listener los recibe ya confirmados (MODIFIED con la hora del servidor).
+     */
+    private void persist(List<Message> messages) {
+        List<StoredMessage> stored = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            if (!message.isPending()) {
+                stored.add(MessageMapper.toStored(chatId, message));
+            }
+        }
+        if (stored.isEmpty()) {
+            return;
+        }
+        DB_EXECUTOR.execute(() -> dao.upsert(stored));
+    }
+
+    // Cursor del listener: el mensaje confirmado más reciente (nunca una hora estimada)
+    private static Cursor newestCommitted(List<Message> messages) {
+        for (int i = messages.size() - 1; i >= 0; i--) {
+            if (!messages.get(i).isPending()) {
+                return Cursor.of(messages.get(i));
+            }
+        }
+        return null;
+    }
+
+    private static List<Message> fromSnapshots(List<DocumentSnapshot> docs) {
+        List<Message> messages = new ArrayList<>(docs.size());
+        for (DocumentSnapshot doc : docs) {
+            messages.add(MessageMapper.fromSnapshot(doc));
+        }
+        return messages;
+    }
+
+    // Las consultas locales devuelven de más reciente a más antiguo
+    private static List<Message> toMessages(List<StoredMessage> stored) {
+        List<Message> messages = new ArrayList<>(stored.size());
+        for (StoredMessage message : stored) {
+            messages.add(MessageMapper.fromStored(message));
+        }
+        Collections.reverse(messages);
+        return messages;
+    }
+}
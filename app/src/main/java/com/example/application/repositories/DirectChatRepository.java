@@ -0,0 +1,158 @@
+package com.example.application.repositories;
+
+import android.util.Log;
+
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Chats 1:1 con ID determinista: "{uidMenor}_{uidMayor}".
+ *
+ * Buscar un chat es una sola lectura de documento y la creación se hace en una
+ * transacción get-or-create, así que dos usuarios que se añaden a la vez no
+ * pueden crear chats duplicados.
+ *
+ * Los chats antiguos con ID automático se migran creando en el ID determinista un
+ * alias con "legacyChatId", que apunta al chat existente y conserva su historial.
+ */
+public class DirectChatRepository {
+
+    private static final String TAG = "DirectChatRepository";
+    public static final String FIELD_LEGACY_CHAT_ID = "legacyChatId";
+    public static final String FIELD_PARTICIPANT_NAMES = "participantNames";
+
+    private static DirectChatRepository instance;
+
+    private final FirebaseFirestore db;
+    // Chats antiguos ya migrados (o en curso) en esta sesión
+    private final Set<String> migratedLegacyChats = new HashSet<>();
+
+    private DirectChatRepository() {
+        db = FirebaseFirestore.getInstance();
+    }
+
+    public static synchronized DirectChatRepository getInstance() {
+        if (instance == null) {
+            instance = new DirectChatRepository();
+        }
+        return instance;
+    }
+
+    public static String chatIdFor(String userId1, String userId2) {
+        return userId1.compareTo(userId2) < 0
+                ? userId1 + "_" + userId2
+                : userId2 + "_" + userId1;
+    }
+
+    public static boolean isDeterministicId(String chatId, List<String> participants) {
+        return participants != null && participants.size() == 2
+                && chatId.equals(chatIdFor(participants.get(0), participants.get(1)));
+    }
+
+    public static class Result {
+        // ID del chat a abrir (el del chat antiguo si el documento es un alias)
+        public final String chatId;
+        public final boolean created;
+
+        Result(String chatId, boolean created) {
+            this.chatId = chatId;
+            this.created = created;
+        }
+    }
+
+    /**
+     * Devuelve el chat entre los dos usuarios, creándolo si no existe. Los nombres
+     * se guardan en el chat (participantNames) para pintar la lista sin leer users;
+     * pueden ser null si aún no se conocen.
+     */
+    public Task<Result> getOrCreateChat(String currentUserId, String currentUserName,
+                                        String otherUserId, String otherUserName) {
+        String chatId = chatIdFor(currentUserId, otherUserId);
+        DocumentReference chatRef = db.collection("chats").document(chatId);
+
+        return db.runTransaction(transaction -> {
+            DocumentSnapshot snapshot = transaction.get(chatRef);
+            if (snapshot.exists()) {
+                String legacyChatId = snapshot.getString(FIELD_LEGACY_CHAT_ID);
+                return new Result(legacyChatId != null ? legacyChatId : chatId, false);
+            }
+            transaction.set(chatRef, newChatData(currentUserId, currentUserName, otherUserId, otherUserName));
+            return new Result(chatId, true);
+        });
+    }
+
+    /**
+     * Crea el alias determinista para un chat 1:1 antiguo si todavía no existe.
+     * Se llama con los chats que ya entrega el listener de la lista, sin lecturas extra
+     * de la colección.
+     */
+    public void migrateLegacyChat(String legacyChatId, List<String> participants) {
+        if (participants == null || participants.size() != 2
+                || isDeterministicId(legacyChatId, participants)
+                || !migratedLegacyChats.add(legacyChatId)) {
+            return;
+        }
+
+        String chatId = chatIdFor(participants.get(0), participants.get(1));
+        DocumentReference chatRef = db.collection("chats").document(chatId);
+
+        db.runTransaction(transaction -> {
+            DocumentSnapshot snapshot = transaction.get(chatRef);
+            if (snapshot.exists()) {
+                // Ya hay alias u otro chat con ID determinista: no se toca
+                return null;
+            }
+            Map<String, Object> alias = new HashMap<>();
+            alias.put("participants", sortedParticipants(participants.get(0), participants.get(1)));
+            alias.put(FIELD_LEGACY_CHAT_ID, legacyChatId);
+            alias.put("createdAt", FieldValue.serverTimestamp());
+            transaction.set(chatRef, alias);
+            return null;
+        }).addOnFailureListener(e -> {
+            migratedLegacyChats.remove(legacyChatId);
+            Log.e(TAG, "Error al migrar chat " + legacyChatId, e);
+        });
+    }
+
+    private static Map<String, Object> newChatData(String currentUserId, String currentUserName,
+                                                   String otherUserId, String otherUserName) {
+        Map<String, Object> chat = new HashMap<>();
+        chat.put("participants", sortedParticipants(currentUserId, otherUserId));
+        chat.put("createdAt", FieldValue.serverTimestamp());
+        chat.put("lastMessage", "");
+        chat.put("lastMessageTime", FieldValue.serverTimestamp());
+        chat.put("lastMessageSenderId", "");
+        // Contadores de no leídos por participante
+        Map<String, Object> unreadCount = new HashMap<>();
+        unreadCount.put(currentUserId, 0);
+        unreadCount.put(otherUserId, 0);
+        chat.put("unreadCount", unreadCount);
+        // Nombres de los participantes (participantNames.{uid}); cada usuario mantiene el suyo
+        Map<String, Object> participantNames = new HashMap<>();
+        if (currentUserName != null) {
+            participantNames.put(currentUserId, currentUserName);
+        }
+        if (otherUserName != null) {
+            participantNames.put(otherUserId, otherUserName);
+        }
+        chat.put(FIELD_PARTICIPANT_NAMES, participantNames);
+        return chat;
+    }
+
+    // Mismo orden que el ID, para poder validarlo en las reglas
+    private static List<String> sortedParticipants(String userId1, String userId2) {
+        return userId1.compareTo(userId2) < 0
+                ? Arrays.asList(userId1, userId2)
+                : Arrays.asList(userId2, userId1);
+    }
+}
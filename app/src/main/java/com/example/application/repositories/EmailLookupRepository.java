@@ -0,0 +1,187 @@
+package com.example.application.repositories;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Resuelve un email a un usuario con una sola lectura del índice
+ * emailLookup/{emailNormalizado}, que mantiene cada usuario para sí mismo.
+ * Los resultados se guardan en memoria y en SharedPreferences.
+ */
+public class EmailLookupRepository {
+
+    private static final String TAG = "EmailLookupRepository";
+    private static final String PREFS_NAME = "email_lookup_cache";
+    private static final String KEY_EMAIL_PREFIX = "email:";
+    // Marca de que el índice del usuario actual ya se escribió en este dispositivo
+    private static final String KEY_INDEXED_PREFIX = "indexed:";
+    private static final String SEPARATOR = "\n";
+
+    private static EmailLookupRepository instance;
+
+    public static class Result {
+        public final String userId;
+        public final String name;
+
+        Result(String userId, String name) {
+            this.userId = userId;
+            this.name = name;
+        }
+    }
+
+    public interface Callback {
+        // result es null si no existe ningún usuario con ese email
+        void onResult(@Nullable Result result);
+
+        void onError(Exception e);
+    }
+
+    private final FirebaseFirestore db;
+    private final SharedPreferences prefs;
+    private final Map<String, Result> memoryCache = new HashMap<>();
+
+    private EmailLookupRepository(Context context) {
+        db = FirebaseFirestore.getInstance();
+        prefs = context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    public static synchronized EmailLookupRepository getInstance(Context context) {
+        if (instance == null) {
+            instance = new EmailLookupRepository(context);
+        }
+        return instance;
+    }
+
+    // Normalizar el email (convertir a minúsculas y quitar espacios)
+    public static String normalize(String email) {
+        return email.toLowerCase(Locale.ROOT).trim();
+    }
+
+    /**
+     * Añade al batch la escritura del índice para el usuario indicado.
+     */
+    public void addIndexWrite(WriteBatch batch, String userId, String name, String email) {
+        if (normalize(email).contains("/")) {
+            return;
+        }
+        batch.set(db.collection("emailLookup").document(normalize(email)), indexData(userId, name));
+    }
+
+    /**
+     * Escribe el índice del usuario actual si aún no consta en este dispositivo.
+     * Cubre a los usuarios registrados antes de que existiera emailLookup; solo
+     * cuesta una lectura y una escritura la primera vez.
+     */
+    public void ensureIndexed(String userId, String email) {
+        if (email == null) {
+            return;
+        }
+        String normalizedEmail = normalize(email);
+        String flag = KEY_INDEXED_PREFIX + userId;
+        if (normalizedEmail.equals(prefs.getString(flag, null)) || normalizedEmail.contains("/")) {
+            return;
+        }
+        db.collection("users").document(userId)
+                .get()
+                .addOnSuccessListener(userDoc -> {
+                    if (!userDoc.exists()) {
+                        return;
+                    }
+                    db.collection("emailLookup").document(normalizedEmail)
+                            .set(indexData(userId, userDoc.getString("name")), SetOptions.merge())
+                            .addOnSuccessListener(aVoid -> prefs.edit().putString(flag, normalizedEmail).apply())
+                            .addOnFailureListener(e -> Log.e(TAG, "Error al indexar email", e));
+                });
+    }
+
+    public void findByEmail(String email, Callback callback) {
+        String normalizedEmail = normalize(email);
+
+        Result cached = getCached(normalizedEmail);
+        if (cached != null) {
+            callback.onResult(cached);
+            return;
+        }
+
+        // "/" no es válido en un ID de documento: buscar directamente en users
+        if (normalizedEmail.isEmpty() || normalizedEmail.contains("/")) {
+            findInUsers(normalizedEmail, callback);
+            return;
+        }
+
+        db.collection("emailLookup").document(normalizedEmail)
+                .get()
+                .addOnSuccessListener(doc -> {
+                    if (doc.exists() && doc.getString("uid") != null) {
+                        Result result = new Result(doc.getString("uid"), doc.getString("name"));
+                        putCached(normalizedEmail, result);
+                        callback.onResult(result);
+                    } else {
+                        // Usuario aún sin índice (registrado antes de emailLookup)
+                        findInUsers(normalizedEmail, callback);
+                    }
+                })
+                .addOnFailureListener(callback::onError);
+    }
+
+    private void findInUsers(String normalizedEmail, Callback callback) {
+        db.collection("users")
+                .whereEqualTo("email", normalizedEmail)
+                .limit(1)
+                .get()
+                .addOnSuccessListener(snapshots -> {
+                    if (snapshots.isEmpty()) {
+                        callback.onResult(null);
+                        return;
+                    }
+                    DocumentSnapshot doc = snapshots.getDocuments().get(0);
+                    Result result = new Result(doc.getId(), doc.getString("name"));
+                    putCached(normalizedEmail, result);
+                    callback.onResult(result);
+                })
+                .addOnFailureListener(callback::onError);
+    }
+
+    private Map<String, Object> indexData(String userId, String name) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("uid", userId);
+        data.put("name", name);
+        return data;
+    }
+
+    @Nullable
+    private Result getCached(String normalizedEmail) {
+        Result result = memoryCache.get(normalizedEmail);
+        if (result != null) {
+            return result;
+        }
+        String stored = prefs.getString(KEY_EMAIL_PREFIX + normalizedEmail, null);
+        if (stored == null) {
+            return null;
+        }
+        int separator = stored.indexOf(SEPARATOR);
+        result = separator < 0
+                ? new Result(stored, null)
+                : new Result(stored.substring(0, separator), stored.substring(separator + 1));
+        memoryCache.put(normalizedEmail, result);
+        return result;
+    }
+
+    private void putCached(String normalizedEmail, Result result) {
+        memoryCache.put(normalizedEmail, result);
+        String name = result.name != null ? result.name : "";
+        prefs.edit().putString(KEY_EMAIL_PREFIX + normalizedEmail, result.userId + SEPARATOR + name).apply();
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.application.repositories;
+
+import com.example.application.data.StoredMessage;
+import com.example.application.models.Message;
+import com.google.firebase.firestore.DocumentSnapshot;
+
+/**
+ * Convierte documentos de "chats/{chatId}/messages" en objetos Message, y
+ * mensajes de/hacia la copia local (StoredMessage).
+ */
+public final class MessageMapper {
+
+    private MessageMapper() {
+    }
+
+    public static Message fromSnapshot(DocumentSnapshot doc) {
+        Message message = new Message();
+        message.setMessageId(doc.getId());
+        message.setText(doc.getString("text"));
+        message.setSenderId(doc.getString("senderId"));
+        message.setSenderName(doc.getString("senderName"));
+
+        // Los mensajes propios aún sin confirmar usan la hora estimada en vez de null,
+        // así se ordenan y agrupan por fecha igual que el resto
+        com.google.firebase.Timestamp timestamp = doc.getTimestamp("timestamp",
+                DocumentSnapshot.ServerTimestampBehavior.ESTIMATE);
+        if (timestamp != null) {
+            message.setTimestamp(timestamp.toDate());
+        }
+        message.setPending(doc.getMetadata().hasPendingWrites());
+
+        // Cargar campos de imagen
+        String type = doc.getString("type");
+        message.setType(type != null ? type : "text");
+        message.setImageUrl(doc.getString("imageUrl"));
+        message.setThumbnailUrl(doc.getString("thumbnailUrl"));
+        com.google.firebase.firestore.Blob preview = doc.getBlob("imagePreview");
+        message.setImagePreview(preview != null ? preview.toBytes() : null);
+        return message;
+    }
+
+    public static StoredMessage toStored(String chatId, Message message) {
+        StoredMessage stored = new StoredMessage();
+        stored.messageId = message.getMessageId();
+        stored.chatId = chatId;
+        stored.text = message.getText();
+        stored.senderId = message.getSenderId();
+        stored.senderName = message.getSenderName();
+        stored.timestamp = message.getTimestamp() != null ? message.getTimestamp().getTime() : 0;
+        stored.type = message.getType();
+        stored.imageUrl = message.getImageUrl();
+        stored.thumbnailUrl = message.getThumbnailUrl();
+        stored.imagePreview = message.getImagePreview();
+        return stored;
+    }
+
+    public static Message fromStored(StoredMessage stored) {
+        Message message = new Message();
+        message.setMessageId(stored.messageId);
+        message.setText(stored.text);
+        message.setSenderId(stored.senderId);
+        message.setSenderName(stored.senderName);
+        message.setTimestamp(new java.util.Date(stored.timestamp));
+        message.setType(stored.type != null ? stored.type : "text");
+        message.setImageUrl(stored.imageUrl);
+        message.setThumbnailUrl(stored.thumbnailUrl);
+        message.setImagePreview(stored.imagePreview);
+        return message;
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.application.repositories;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.Source;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Escribe un mensaje y el resumen del chat (lastMessage, contador de no leídos)
+ * en un único WriteBatch: un solo viaje al servidor y la lista de chats nunca
+ * queda desincronizada con los mensajes.
+ *
+ * El ID del mensaje se genera antes de enviar. Un batch confirmado no se vuelve a
+ * confirmar: si no hay red se queda en la cola de escrituras del SDK (que persiste
+ * entre procesos) y se espera con awaitPendingWrites(). Repetirlo crearía copias
+ * que, al llegar después del original, las reglas rechazarían como actualización.
+ */
+public final class MessageWriter {
+
+    private static final long TIMEOUT_SECONDS = 30;
+
+    private MessageWriter() {
+    }
+
+    public static WriteBatch newSendBatch(FirebaseFirestore db, String chatId, String messageId,
+                                          Map<String, Object> message, String lastMessage,
+                                          String senderId, String otherUserId) {
+        DocumentReference chatRef = db.collection("chats").document(chatId);
+
+        WriteBatch batch = db.batch();
+        batch.set(chatRef.collection("messages").document(messageId), message);
+        batch.update(chatRef, chatUpdate(message, lastMessage, senderId, otherUserId));
+        return batch;
+    }
+
+    // Campos del resumen del chat que acompañan al mensaje (probado en MessageWriterTest)
+    // Nombre del remitente cuando todavía no se conoce el suyo
+    public static final String DEFAULT_SENDER_NAME = "Usuario";
+
+    static Map<String, Object> chatUpdate(Map<String, Object> message, String lastMessage,
+                                          String senderId, String otherUserId) {
+        // Actualizar el último mensaje en el chat
+        Map<String, Object> chatUpdate = new HashMap<>();
+        chatUpdate.put("lastMessage", lastMessage);
+        chatUpdate.put("lastMessageTime", message.get("timestamp"));
+        chatUpdate.put("lastMessageSenderId", senderId);
+        // Incremento atómico del contador de no leídos del destinatario
+        if (otherUserId != null) {
+            chatUpdate.put("unreadCount." + otherUserId, FieldValue.increment(1));
+        }
+        return chatUpdate;
+    }
+
+    /**
+     * Confirma el batch y espera la respuesta del servidor. Si se agota el tiempo
+     * (TimeoutException) la escritura sigue en la cola del SDK: no hay que volver a
+     * confirmarla, sino esperarla con awaitPendingWrites(). Un rechazo de un mensaje
+     * que ya existe cuenta como entregado. Bloqueante: solo desde hilos de fondo.
+     */
+    public static void commit(FirebaseFirestore db, String chatId, String messageId,
+                              WriteBatch batch) throws Exception {
+        try {
+            Tasks.await(batch.commit(), TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            if (!isDelivered(db, chatId, messageId, e)) {
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Espera a que el SDK haya enviado todas las escrituras pendientes, también las
+     * que dejó en su cola un proceso anterior. Sin red lanza TimeoutException: las
+     * escrituras siguen en la cola y no hay que volver a confirmarlas. Bloqueante.
+     */
+    public static void awaitPendingWrites(FirebaseFirestore db) throws Exception {
+        Tasks.await(db.waitForPendingWrites(), TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Comprueba en el servidor si el mensaje existe. Lanza una excepción si no se
+     * puede saber (sin red): "no lo sé" nunca se confunde con "no existe".
+     * Bloqueante: solo desde hilos de fondo.
+     */
+    public static boolean existsOnServer(FirebaseFirestore db, String chatId, String messageId)
+            throws Exception {
+        DocumentReference messageRef = db.collection("chats").document(chatId)
+                .collection("messages").document(messageId);
+        DocumentSnapshot snapshot = Tasks.await(messageRef.get(Source.SERVER),
+                TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        return snapshot.exists();
+    }
+
+    /**
+     * Un rechazo del servidor a un mensaje que ya existe es la copia repetida de un
+     * envío que sí llegó (las reglas no permiten actualizar mensajes): cuenta como
+     * entregado. Si no se puede comprobar, lanza la excepción.
+     */
+    public static boolean isDelivered(FirebaseFirestore db, String chatId, String messageId,
+                                      Throwable error) throws Exception {
+        return isPermanentFailure(error) && existsOnServer(db, chatId, messageId);
+    }
+
+    /**
+     * Indica si un error al confirmar no se arregla reintentando: el servidor
+     * rechazó la escritura (reglas, chat borrado, datos no válidos). Los errores
+     * de red, los tiempos agotados y los de cuota se consideran transitorios.
+     */
+    public static boolean isPermanentFailure(Throwable error) {
+        // Tasks.await envuelve la excepción en una ExecutionException
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof FirebaseFirestoreException) {
+                switch (((FirebaseFirestoreException) cause).getCode()) {
+                    case PERMISSION_DENIED:
+                    case NOT_FOUND:
+                    case INVALID_ARGUMENT:
+                    case FAILED_PRECONDITION:
+                    case OUT_OF_RANGE:
+                    case UNIMPLEMENTED:
+                        return true;
+                    default:
+                        return false;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,301 @@
+package com.example.application.repositories;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.application.services.PresenceManager;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Caché compartida de presencia de otros usuarios.
+ *
+ * Los usuarios observados se agrupan en listeners whereIn de hasta 30 IDs, así
+ * que la lista de chats no vuelve a leer los documentos de usuario. Un temporizador
+ * local caduca las entradas cuyo lastSeen supera la ventana del keep-alive, de
+ * modo que el paso de online a offline no requiere ninguna lectura.
+ *
+ * Con la lista de chats fuera de pantalla la caché se pausa: se quitan los
+ * listeners y el temporizador, y al reanudar se vuelven a registrar los mismos
+ * usuarios sin que las filas tengan que volver a observarlos.
+ *
+ * Todos los métodos deben llamarse desde el hilo principal.
+ */
+public class PresenceCache {
+
+    private static final String TAG = "PresenceCache";
+
+    // Límite de elementos de Firestore para whereIn
+    private static final int MAX_IDS_PER_QUERY = 30;
+    private static final long EXPIRY_CHECK_INTERVAL = 15_000; // 15 segundos
+    // Tiempo que se sigue escuchando a un usuario sin observadores (evita
+    // re-registrar listeners al reciclar filas durante el scroll)
+    private static final long UNWATCH_DELAY = 30_000;
+
+    private static PresenceCache instance;
+
+    public interface Listener {
+        void onPresenceChanged(String userId, boolean online);
+    }
+
+    private static class Entry {
+        Boolean online;
+        Date lastSeen;
+        boolean reportedOnline;
+        long unobservedSince;
+    }
+
+    private static class Chunk {
+        final Set<String> userIds = new HashSet<>();
+        ListenerRegistration registration;
+    }
+
+    private final FirebaseFirestore db;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final Map<String, List<Listener>> listeners = new HashMap<>();
+    private final List<Chunk> chunks = new ArrayList<>();
+    private final Map<String, Chunk> chunkByUser = new HashMap<>();
+    private final Set<Chunk> dirtyChunks = new HashSet<>();
+    private boolean ticking;
+    private boolean paused;
+
+    private final Runnable registerDirtyChunks = this::registerDirtyChunks;
+    private final Runnable tick = new Runnable() {
+        @Override
+        public void run() {
+            expireEntries();
+            if (entries.isEmpty()) {
+                ticking = false;
+            } else {
+                handler.postDelayed(this, EXPIRY_CHECK_INTERVAL);
+            }
+        }
+    };
+
+    private PresenceCache() {
+        db = FirebaseFirestore.getInstance();
+    }
+
+    public static synchronized PresenceCache getInstance() {
+        if (instance == null) {
+            instance = new PresenceCache();
+        }
+        return instance;
+    }
+
+    /**
+     * Empieza a observar la presencia de un usuario. El listener recibe el valor
+     * actual inmediatamente y después cada cambio.
+     */
+    public void observe(String userId, Listener listener) {
+        List<Listener> userListeners = listeners.get(userId);
+        if (userListeners == null) {
+            userListeners = new ArrayList<>();
+            listeners.put(userId, userListeners);
+        }
+        userListeners.add(listener);
+
+        Entry entry = entries.get(userId);
+        if (entry == null) {
+            entry = new Entry();
+            entries.put(userId, entry);
+            watch(userId);
+        }
+        entry.unobservedSince = 0;
+        startTicking();
+
+        listener.onPresenceChanged(userId, entry.reportedOnline);
+    }
+
+    public void removeObserver(String userId, Listener listener) {
+        List<Listener> userListeners = listeners.get(userId);
+        if (userListeners == null) {
+            return;
+        }
+        userListeners.remove(listener);
+        if (userListeners.isEmpty()) {
+            listeners.remove(userId);
+            // Se deja de escuchar más tarde, en el temporizador
+            Entry entry = entries.get(userId);
+            if (entry != null) {
+                entry.unobservedSince = System.currentTimeMillis();
+            }
+        }
+    }
+
+    /**
+     * Deja de escuchar a Firestore y detiene el temporizador de caducidad. Los
+     * observadores se conservan hasta resume().
+     */
+    public void pause() {
+        if (paused) {
+            return;
+        }
+        paused = true;
+        handler.removeCallbacks(registerDirtyChunks);
+        handler.removeCallbacks(tick);
+        ticking = false;
+        for (Chunk chunk : chunks) {
+            if (chunk.registration != null) {
+                chunk.registration.remove();
+                chunk.registration = null;
+            }
+            // Al reanudar se registra de nuevo
+            dirtyChunks.add(chunk);
+        }
+    }
+
+    public void resume() {
+        if (!paused) {
+            return;
+        }
+        paused = false;
+        // Lo que caducó mientras estaba en pausa se refleja ya, sin esperar al servidor
+        expireEntries();
+        if (!dirtyChunks.isEmpty()) {
+            handler.post(registerDirtyChunks);
+        }
+        if (!entries.isEmpty()) {
+            startTicking();
+        }
+    }
+
+    public boolean isOnline(String userId) {
+        Entry entry = entries.get(userId);
+        return entry != null && entry.reportedOnline;
+    }
+
+    private void watch(String userId) {
+        Chunk target = null;
+        for (Chunk chunk : chunks) {
+            if (chunk.userIds.size() < MAX_IDS_PER_QUERY) {
+                target = chunk;
+                break;
+            }
+        }
+        if (target == null) {
+            target = new Chunk();
+            chunks.add(target);
+        }
+        target.userIds.add(userId);
+        chunkByUser.put(userId, target);
+        markDirty(target);
+    }
+
+    private void unwatch(String userId) {
+        Chunk chunk = chunkByUser.remove(userId);
+        if (chunk != null) {
+            chunk.userIds.remove(userId);
+            markDirty(chunk);
+        }
+    }
+
+    // Los cambios de un mismo frame se agrupan en un solo registro por chunk
+    private void markDirty(Chunk chunk) {
+        if (dirtyChunks.isEmpty() && !paused) {
+            handler.post(registerDirtyChunks);
+        }
+        dirtyChunks.add(chunk);
+    }
+
+    private void registerDirtyChunks() {
+        if (paused) {
+            return;
+        }
+        for (Chunk chunk : dirtyChunks) {
+            if (chunk.registration != null) {
+                chunk.registration.remove();
+                chunk.registration = null;
+            }
+            if (chunk.userIds.isEmpty()) {
+                chunks.remove(chunk);
+                continue;
+            }
+            chunk.registration = db.collection("users")
+                    .whereIn(FieldPath.documentId(), new ArrayList<>(chunk.userIds))
+                    .addSnapshotListener((snapshots, error) -> {
+                        if (error != null) {
+                            Log.e(TAG, "Error en el listener de presencia", error);
+                            return;
+                        }
+                        if (snapshots == null) {
+                            return;
+                        }
+                        for (DocumentChange change : snapshots.getDocumentChanges()) {
+                            applyUserDocument(change.getDocument(),
+                                    change.getType() == DocumentChange.Type.REMOVED);
+                        }
+                    });
+        }
+        dirtyChunks.clear();
+    }
+
+    private void applyUserDocument(DocumentSnapshot doc, boolean removed) {
+        Entry entry = entries.get(doc.getId());
+        if (entry == null) {
+            return;
+        }
+        if (removed) {
+            entry.online = false;
+            entry.lastSeen = null;
+        } else {
+            entry.online = doc.getBoolean("online");
+            com.google.firebase.Timestamp lastSeen = doc.getTimestamp("lastSeen",
+                    DocumentSnapshot.ServerTimestampBehavior.ESTIMATE);
+            entry.lastSeen = lastSeen != null ? lastSeen.toDate() : null;
+        }
+        report(doc.getId(), entry);
+    }
+
+    private void startTicking() {
+        if (!ticking && !paused) {
+            ticking = true;
+            handler.postDelayed(tick, EXPIRY_CHECK_INTERVAL);
+        }
+    }
+
+    // Caduca localmente el estado online y suelta los usuarios sin observadores
+    private void expireEntries() {
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Entry> item = iterator.next();
+            Entry entry = item.getValue();
+            if (entry.unobservedSince > 0 && now - entry.unobservedSince >= UNWATCH_DELAY) {
+                iterator.remove();
+                unwatch(item.getKey());
+                continue;
+            }
+            report(item.getKey(), entry);
+        }
+    }
+
+    private void report(String userId, Entry entry) {
+        boolean online = PresenceManager.isOnline(entry.online, entry.lastSeen);
+        if (online == entry.reportedOnline) {
+            return;
+        }
+        entry.reportedOnline = online;
+
+        List<Listener> userListeners = listeners.get(userId);
+        if (userListeners != null) {
+            for (Listener listener : new ArrayList<>(userListeners)) {
+                listener.onPresenceChanged(userId, online);
+            }
+        }
+    }
+}
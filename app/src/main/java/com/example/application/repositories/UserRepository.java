@@ -0,0 +1,294 @@
+package com.example.application.repositories;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.util.LruCache;
+
+import androidx.annotation.Nullable;
+
+import com.example.application.models.User;
+import com.example.application.utils.DebugLog;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Source;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Caché de perfiles (users/{uid}) compartida por toda la app.
+ *
+ * Primero se mira una LruCache en memoria y después SharedPreferences. Los fallos
+ * de un mismo frame se agrupan en consultas whereIn de hasta 30 IDs, y varias
+ * peticiones del mismo usuario comparten una sola lectura. Una entrada caducada
+ * (TTL) se devuelve igualmente y se refresca en segundo plano.
+ *
+ * Todos los métodos deben llamarse desde el hilo principal.
+ */
+public class UserRepository {
+
+    private static final String TAG = "UserRepository";
+    private static final String PREFS_NAME = "user_cache";
+    private static final String KEY_USER_PREFIX = "user:";
+    private static final String SEPARATOR = "\n";
+
+    // Límite de elementos de Firestore para whereIn
+    private static final int MAX_IDS_PER_QUERY = 30;
+    private static final int MEMORY_CACHE_SIZE = 200;
+    private static final long TTL = 10 * 60_000; // 10 minutos
+
+    private static UserRepository instance;
+
+    public interface Callback {
+        // user es null si el usuario no existe o no se pudo cargar
+        void onUser(@Nullable User user);
+    }
+
+    private static class Entry {
+        final User user;
+        final long fetchedAt;
+
+        Entry(User user, long fetchedAt) {
+            this.user = user;
+            this.fetchedAt = fetchedAt;
+        }
+
+        boolean isStale() {
+            return System.currentTimeMillis() - fetchedAt > TTL;
+        }
+    }
+
+    private final FirebaseFirestore db;
+    private final SharedPreferences prefs;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final LruCache<String, Entry> memoryCache = new LruCache<>(MEMORY_CACHE_SIZE);
+    // Peticiones en curso o a la espera del siguiente lote, por usuario
+    private final Map<String, List<Callback>> inFlight = new HashMap<>();
+    private final Set<String> queued = new LinkedHashSet<>();
+    // Lecturas de fetch() en curso: no se mezclan con las de la caché
+    private final Map<String, List<Callback>> serverFetches = new HashMap<>();
+
+    // Métricas
+    private int memoryHits;
+    private int diskHits;
+    private int misses;
+    private int coalesced;
+    private int refreshes;
+    private int queries;
+
+    private final Runnable fetchQueued = this::fetchQueued;
+
+    private UserRepository(Context context) {
+        db = FirebaseFirestore.getInstance();
+        prefs = context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    public static synchronized UserRepository getInstance(Context context) {
+        if (instance == null) {
+            instance = new UserRepository(context);
+        }
+        return instance;
+    }
+
+    /**
+     * Devuelve el usuario de la caché si lo hay (aunque esté caducado), sin leer
+     * de Firestore. Cuenta como acierto o fallo en las métricas.
+     */
+    @Nullable
+    public User peek(String userId) {
+        Entry entry = getCached(userId);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.isStale()) {
+            refresh(userId);
+        }
+        return entry.user;
+    }
+
+    public void get(String userId, Callback callback) {
+        Entry entry = getCached(userId);
+        if (entry != null) {
+            if (entry.isStale()) {
+                refresh(userId);
+            }
+            callback.onUser(entry.user);
+            return;
+        }
+
+        misses++;
+        List<Callback> callbacks = inFlight.get(userId);
+        if (callbacks != null) {
+            // Ya hay una lectura en curso para este usuario
+            coalesced++;
+            callbacks.add(callback);
+            return;
+        }
+        callbacks = new ArrayList<>();
+        callbacks.add(callback);
+        inFlight.put(userId, callbacks);
+        enqueue(userId);
+    }
+
+    /**
+     * Lee el usuario del servidor aunque esté en caché (y la actualiza). Para los
+     * casos en que un valor caducado no sirve, como propagar el nombre propio: si
+     * no se puede leer del servidor devuelve null, nunca la copia local.
+     */
+    public void fetch(String userId, Callback callback) {
+        List<Callback> callbacks = serverFetches.get(userId);
+        if (callbacks != null) {
+            coalesced++;
+            callbacks.add(callback);
+            return;
+        }
+        refreshes++;
+        queries++;
+        callbacks = new ArrayList<>();
+        callbacks.add(callback);
+        serverFetches.put(userId, callbacks);
+        // Source.SERVER: sin red falla en vez de responder con la caché de Firestore
+        db.collection("users").document(userId)
+                .get(Source.SERVER)
+                .addOnSuccessListener(doc -> {
+                    User user = null;
+                    if (doc.exists()) {
+                        user = toUser(doc);
+                        store(user, System.currentTimeMillis());
+                    }
+                    deliver(serverFetches, userId, user);
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Error al leer el usuario " + userId + " del servidor", e);
+                    deliver(serverFetches, userId, null);
+                });
+    }
+
+    public String getMetricsSummary() {
+        int requests = memoryHits + diskHits + misses;
+        return "peticiones=" + requests
+                + " memoria=" + memoryHits
+                + " disco=" + diskHits
+                + " fallos=" + misses
+                + " agrupadas=" + coalesced
+                + " refrescos=" + refreshes
+                + " consultas=" + queries;
+    }
+
+    @Nullable
+    private Entry getCached(String userId) {
+        Entry entry = memoryCache.get(userId);
+        if (entry != null) {
+            memoryHits++;
+            return entry;
+        }
+        entry = readFromDisk(userId);
+        if (entry != null) {
+            diskHits++;
+            memoryCache.put(userId, entry);
+        }
+        return entry;
+    }
+
+    private void refresh(String userId) {
+        if (inFlight.containsKey(userId)) {
+            return;
+        }
+        refreshes++;
+        inFlight.put(userId, new ArrayList<>());
+        enqueue(userId);
+    }
+
+    // Los IDs pedidos durante el mismo frame se leen en un solo lote
+    private void enqueue(String userId) {
+        if (queued.isEmpty()) {
+            mainHandler.post(fetchQueued);
+        }
+        queued.add(userId);
+    }
+
+    private void fetchQueued() {
+        List<String> userIds = new ArrayList<>(queued);
+        queued.clear();
+        for (int start = 0; start < userIds.size(); start += MAX_IDS_PER_QUERY) {
+            fetchChunk(userIds.subList(start, Math.min(start + MAX_IDS_PER_QUERY, userIds.size())));
+        }
+    }
+
+    private void fetchChunk(List<String> chunk) {
+        final List<String> userIds = new ArrayList<>(chunk);
+        queries++;
+        db.collection("users")
+                .whereIn(FieldPath.documentId(), userIds)
+                .get()
+                .addOnSuccessListener(snapshots -> {
+                    long now = System.currentTimeMillis();
+                    Map<String, User> found = new HashMap<>();
+                    for (DocumentSnapshot doc : snapshots.getDocuments()) {
+                        User user = toUser(doc);
+                        store(user, now);
+                        found.put(doc.getId(), user);
+                    }
+                    for (String userId : userIds) {
+                        deliver(inFlight, userId, found.get(userId));
+                    }
+                    if (DebugLog.ENABLED) DebugLog.d(TAG, getMetricsSummary());
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Error al cargar usuarios", e);
+                    for (String userId : userIds) {
+                        deliver(inFlight, userId, null);
+                    }
+                });
+    }
+
+    private static User toUser(DocumentSnapshot doc) {
+        return new User(doc.getId(), doc.getString("name"), doc.getString("email"));
+    }
+
+    private static void deliver(Map<String, List<Callback>> pending, String userId, @Nullable User user) {
+        List<Callback> callbacks = pending.remove(userId);
+        if (callbacks == null) {
+            return;
+        }
+        for (Callback callback : callbacks) {
+            callback.onUser(user);
+        }
+    }
+
+    private void store(User user, long fetchedAt) {
+        memoryCache.put(user.getUserId(), new Entry(user, fetchedAt));
+        String name = user.getName() != null ? user.getName() : "";
+        String email = user.getEmail() != null ? user.getEmail() : "";
+        prefs.edit()
+                .putString(KEY_USER_PREFIX + user.getUserId(), fetchedAt + SEPARATOR + name + SEPARATOR + email)
+                .apply();
+    }
+
+    @Nullable
+    private Entry readFromDisk(String userId) {
+        String stored = prefs.getString(KEY_USER_PREFIX + userId, null);
+        if (stored == null) {
+            return null;
+        }
+        String[] parts = stored.split(SEPARATOR, 3);
+        if (parts.length < 3) {
+            return null;
+        }
+        try {
+            long fetchedAt = Long.parseLong(parts[0]);
+            User user = new User(userId, parts[1].isEmpty() ? null : parts[1], parts[2]);
+            return new Entry(user, fetchedAt);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.example.application.services;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+
+import com.example.application.data.AppDatabase;
+import com.example.application.data.PendingUpload;
+import com.example.application.data.PendingUploadDao;
+import com.example.application.utils.ImageCompressor;
+import com.google.firebase.storage.FirebaseStorage;
+import com.google.firebase.storage.StorageReference;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cola persistente de imágenes pendientes de enviar.
+ *
+ * Al encolar, la imagen se comprime y se copia al almacenamiento interno y se
+ * anota en el diario (tabla pending_uploads) antes de programar el trabajo, así
+ * que el envío sobrevive a que se cierre la actividad o muera el proceso. La
+ * subida y la publicación del mensaje las hace ImageUploadWorker.
+ */
+public class ImageUploadQueue {
+
+    private static final String TAG = "ImageUploadQueue";
+    private static final String UPLOADS_DIR = "pending_uploads";
+    private static final String WORK_NAME_PREFIX = "image-upload-";
+    private static final long INITIAL_BACKOFF_SECONDS = 10;
+
+    private static ImageUploadQueue instance;
+
+    public interface Callback {
+        // La imagen ya está en la cola: se enviará aunque se cierre la app
+        void onQueued();
+
+        void onError(Exception e);
+    }
+
+    private final Context context;
+    private final PendingUploadDao dao;
+    private final Executor executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private ImageUploadQueue(Context context) {
+        this.context = context.getApplicationContext();
+        this.dao = AppDatabase.getInstance(this.context).pendingUploadDao();
+    }
+
+    public static synchronized ImageUploadQueue getInstance(Context context) {
+        if (instance == null) {
+            instance = new ImageUploadQueue(context);
+        }
+        return instance;
+    }
+
+    public void enqueue(String chatId, String otherUserId, String senderId, String senderName,
+                        Uri imageUri, Callback callback) {
+        executor.execute(() -> {
+            try {
+                ImageCompressor.Result image = ImageCompressor.compress(context.getContentResolver(),
+                        imageUri, ImageCompressor.MAX_DIMENSION, ImageCompressor.QUALITY);
+
+                PendingUpload upload = new PendingUpload();
+                upload.uploadId = UUID.randomUUID().toString();
+                upload.messageId = com.google.firebase.firestore.FirebaseFirestore.getInstance()
+                        .collection("chats").document(chatId)
+                        .collection("messages").document().getId();
+                upload.chatId = chatId;
+                upload.otherUserId = otherUserId;
+                upload.senderId = senderId;
+                upload.senderName = senderName;
+                upload.mimeType = image.mimeType;
+                upload.extension = image.extension;
+                upload.createdAt = System.currentTimeMillis();
+
+                File dir = uploadDir(upload.uploadId);
+                upload.imagePath = write(new File(dir, "image" + image.extension), image.data);
+                upload.thumbnailPath = write(new File(dir, "thumbnail" + image.extension), image.thumbnail);
+                upload.previewPath = write(new File(dir, "preview.jpg"), image.preview);
+
+                dao.insert(upload);
+                schedule(upload.uploadId);
+                mainHandler.post(callback::onQueued);
+            } catch (IOException | RuntimeException e) {
+                Log.e(TAG, "Error al encolar imagen", e);
+                mainHandler.post(() -> callback.onError(e));
+            }
+        });
+    }
+
+    /**
+     * Vuelve a programar las subidas del diario. WorkManager ya conserva su propio
+     * trabajo; esto solo cubre el caso de que su base de datos se haya perdido.
+     */
+    public void resumePending() {
+        executor.execute(() -> {
+            for (PendingUpload failed : dao.getFailed()) {
+                discard(dao, failed, true);
+            }
+            List<PendingUpload> pending = dao.getResumable();
+            for (PendingUpload upload : pending) {
+                schedule(upload.uploadId);
+            }
+        });
+    }
+
+    /**
+     * Descarta las subidas pendientes, su trabajo y sus ficheros (al cerrar sesión).
+     */
+    public void clear() {
+        WorkManager.getInstance(context).cancelAllWorkByTag(ImageUploadWorker.TAG);
+        executor.execute(() -> {
+            dao.deleteAll();
+            deleteRecursively(new File(context.getFilesDir(), UPLOADS_DIR));
+        });
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+
+    void schedule(String uploadId) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .build();
+
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(ImageUploadWorker.class)
+                .setInputData(new Data.Builder()
+                        .putString(ImageUploadWorker.KEY_UPLOAD_ID, uploadId)
+                        .build())
+                .setConstraints(constraints)
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, INITIAL_BACKOFF_SECONDS, TimeUnit.SECONDS)
+                .addTag(ImageUploadWorker.TAG)
+                .build();
+
+        // KEEP: si ya hay un trabajo para esta subida no se duplica
+        WorkManager.getInstance(context)
+                .enqueueUniqueWork(WORK_NAME_PREFIX + uploadId, ExistingWorkPolicy.KEEP, request);
+    }
+
+    File uploadDir(String uploadId) throws IOException {
+        File dir = new File(new File(context.getFilesDir(), UPLOADS_DIR), uploadId);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("No se pudo crear " + dir);
+        }
+        return dir;
+    }
+
+    // Rutas en Storage: chat_images/{remitente}/{uploadId}[_thumb]{extensión}
+    static StorageReference imageRef(PendingUpload upload) {
+        return folderRef(upload).child(upload.uploadId + upload.extension);
+    }
+
+    static StorageReference thumbnailRef(PendingUpload upload) {
+        return folderRef(upload).child(upload.uploadId + "_thumb" + upload.extension);
+    }
+
+    private static StorageReference folderRef(PendingUpload upload) {
+        return FirebaseStorage.getInstance().getReference()
+                .child("chat_images")
+                .child(upload.senderId);
+    }
+
+    /**
+     * Olvida una subida abandonada: su entrada del diario, sus ficheros y, si
+     * deleteRemote, lo que ya se subió a Storage (sin mensaje nadie lo referencia).
+     */
+    static void discard(PendingUploadDao dao, PendingUpload upload, boolean deleteRemote) {
+        if (deleteRemote) {
+            if (upload.thumbnailUrl != null || upload.thumbnailSessionUri != null) {
+                deleteRemote(thumbnailRef(upload));
+            }
+            if (upload.imageUrl != null || upload.imageSessionUri != null) {
+                deleteRemote(imageRef(upload));
+            }
+        }
+        deleteFiles(upload);
+        dao.delete(upload.uploadId);
+    }
+
+    private static void deleteRemote(StorageReference ref) {
+        ref.delete().addOnFailureListener(e -> Log.w(TAG, "No se pudo borrar " + ref.getPath(), e));
+    }
+
+    static void deleteFiles(PendingUpload upload) {
+        File dir = null;
+        for (String path : new String[]{upload.imagePath, upload.thumbnailPath, upload.previewPath}) {
+            if (path != null) {
+                File file = new File(path);
+                dir = file.getParentFile();
+                file.delete();
+            }
+        }
+        if (dir != null) {
+            dir.delete();
+        }
+    }
+
+    private static String write(File file, byte[] data) throws IOException {
+        try (FileOutputStream output = new FileOutputStream(file)) {
+            output.write(data);
+        }
+        return file.getAbsolutePath();
+    }
+}
@@ -0,0 +1,240 @@
+package com.example.application.services;
+
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.net.Uri;
+import android.os.Build;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.core.app.NotificationCompat;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.example.application.MainActivity;
+import com.example.application.R;
+import com.example.application.data.AppDatabase;
+import com.example.application.data.PendingUpload;
+import com.example.application.data.PendingUploadDao;
+import com.example.application.repositories.MessageWriter;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.WriteBatch;
+import com.google.firebase.storage.StorageMetadata;
+import com.google.firebase.storage.StorageException;
+import com.google.firebase.storage.StorageReference;
+import com.google.firebase.storage.UploadTask;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Sube una imagen del diario de pending_uploads y, cuando las dos versiones
+ * (miniatura y completa) están en Storage, publica el mensaje.
+ *
+ * Cada paso deja su resultado en el diario, así un reintento continúa donde se
+ * quedó: las subidas se reanudan con su URI de sesión de Storage y el mensaje
+ * se publica, junto con el resumen del chat, con el ID reservado al encolar.
+ *
+ * Si el servidor rechaza el mensaje o se agotan los intentos, la subida se borra
+ * del diario junto con sus ficheros y lo ya subido a Storage, y se avisa con una
+ * notificación.
+ */
+public class ImageUploadWorker extends Worker {
+
+    public static final String TAG = "ImageUploadWorker";
+    public static final String KEY_UPLOAD_ID = "uploadId";
+    // Subidas simultáneas como máximo (tamaño del executor de WorkManager)
+    public static final int MAX_CONCURRENT_UPLOADS = 2;
+    private static final int MAX_ATTEMPTS = 8;
+    private static final String FAILURE_CHANNEL_ID = "chat_uploads";
+    private static final String FAILURE_CHANNEL_NAME = "Envíos fallidos";
+
+    // Las URIs de sesión se guardan fuera del hilo principal (Room no permite escribir en él)
+    private static final Executor SESSION_EXECUTOR = Executors.newSingleThreadExecutor();
+
+    public ImageUploadWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        String uploadId = getInputData().getString(KEY_UPLOAD_ID);
+        PendingUploadDao dao = AppDatabase.getInstance(getApplicationContext()).pendingUploadDao();
+        PendingUpload upload = uploadId != null ? dao.get(uploadId) : null;
+        if (upload == null) {
+            return Result.success();
+        }
+
+        try {
+            if (upload.thumbnailUrl == null) {
+                upload.thumbnailUrl = uploadFile(ImageUploadQueue.thumbnailRef(upload),
+                        upload, upload.thumbnailPath, upload.thumbnailSessionUri,
+                        sessionUri -> dao.setThumbnailSessionUri(upload.uploadId, sessionUri));
+                dao.setThumbnailUrl(upload.uploadId, upload.thumbnailUrl);
+            }
+            if (upload.imageUrl == null) {
+                upload.imageUrl = uploadFile(ImageUploadQueue.imageRef(upload),
+                        upload, upload.imagePath, upload.imageSessionUri,
+                        sessionUri -> dao.setImageSessionUri(upload.uploadId, sessionUri));
+                dao.setImageUrl(upload.uploadId, upload.imageUrl);
+            }
+            postMessage(dao, upload);
+
+            ImageUploadQueue.discard(dao, upload, false);
+            return Result.success();
+        } catch (Exception e) {
+            Log.e(TAG, "Error en la subida " + upload.uploadId + " (intento " + getRunAttemptCount() + ")", e);
+            boolean permanent = MessageWriter.isPermanentFailure(e);
+            if (permanent || getRunAttemptCount() + 1 >= MAX_ATTEMPTS) {
+                // Sin más reintentos la entrada y los ficheros solo ocupan espacio. Lo subido
+                // a Storage se borra salvo que el mensaje pueda seguir en la cola del SDK
+                boolean mayStillPost = PendingUpload.STATE_POSTED.equals(upload.state) && !permanent;
+                ImageUploadQueue.discard(dao, upload, !mayStillPost);
+                notifyFailure();
+                return Result.failure();
+            }
+            return Result.retry();
+        }
+    }
+
+    private interface SessionSaver {
+        void save(String sessionUri);
+    }
+
+    private String uploadFile(StorageReference ref, PendingUpload upload, String path,
+                              String sessionUri, SessionSaver sessionSaver) throws Exception {
+        StorageMetadata metadata = new StorageMetadata.Builder()
+                .setContentType(upload.mimeType)
+                .build();
+        Uri fileUri = Uri.fromFile(new File(path));
+
+        UploadTask task = sessionUri != null
+                ? ref.putFile(fileUri, metadata, Uri.parse(sessionUri))
+                : ref.putFile(fileUri, metadata);
+
+        boolean[] sessionSaved = {sessionUri != null};
+        task.addOnProgressListener(SESSION_EXECUTOR, snapshot -> {
+            Uri newSessionUri = snapshot.getUploadSessionUri();
+            if (newSessionUri != null && !sessionSaved[0]) {
+                sessionSaved[0] = true;
+                sessionSaver.save(newSessionUri.toString());
+            }
+        });
+
+        try {
+            Tasks.await(task);
+        } catch (Exception e) {
+            // Solo si la sesión ya no existe se empieza de cero; ante un corte de red
+            // el siguiente intento la reanuda
+            if (sessionUri != null && isSessionGone(e)) {
+                SESSION_EXECUTOR.execute(() -> sessionSaver.save(null));
+            }
+            throw e;
+        }
+        return Tasks.await(ref.getDownloadUrl()).toString();
+    }
+
+    // Storage responde 404 o 410 cuando la URI de sesión no es válida o ha caducado
+    private static boolean isSessionGone(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof StorageException) {
+                int code = ((StorageException) cause).getHttpResultCode();
+                return code == 404 || code == 410;
+            }
+        }
+        return false;
+    }
+
+    private void notifyFailure() {
+        Context context = getApplicationContext();
+        NotificationManager notificationManager =
+                (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+        if (notificationManager == null) {
+            return;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            notificationManager.createNotificationChannel(new NotificationChannel(
+                    FAILURE_CHANNEL_ID, FAILURE_CHANNEL_NAME, NotificationManager.IMPORTANCE_DEFAULT));
+        }
+
+        Intent intent = new Intent(context, MainActivity.class);
+        intent.addFlags(Intent.FLAG_ACTIVITY_CLEAR_TOP);
+        PendingIntent pendingIntent = PendingIntent.getActivity(context, 0, intent,
+                PendingIntent.FLAG_IMMUTABLE);
+
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(context, FAILURE_CHANNEL_ID)
+                .setSmallIcon(R.drawable.ic_notifications_black_24dp)
+                .setContentTitle("📷 Imagen no enviada")
+                .setContentText("No se pudo enviar la imagen. Vuelve a adjuntarla.")
+                .setAutoCancel(true)
+                .setContentIntent(pendingIntent);
+        notificationManager.notify(getId().hashCode(), builder.build());
+    }
+
+    private void postMessage(PendingUploadDao dao, PendingUpload upload) throws Exception {
+        FirebaseFirestore db = FirebaseFirestore.getInstance();
+
+        if (PendingUpload.STATE_POSTED.equals(upload.state)) {
+            // Un intento anterior ya lo confirmó: confirmarlo otra vez crearía una copia
+            // que las reglas rechazarían. Se espera a la cola del SDK (sin red, lanza)
+            MessageWriter.awaitPendingWrites(db);
+            if (MessageWriter.existsOnServer(db, upload.chatId, upload.messageId)) {
+                return;
+            }
+            // El SDK ya no lo tiene y el servidor tampoco: se perdió, se publica de nuevo
+        }
+
+        // El nombre del remitente puede no estar cargado todavía al encolar
+        String senderName = upload.senderName;
+        if (senderName == null) {
+            DocumentSnapshot userDoc = Tasks.await(db.collection("users").document(upload.senderId).get());
+            senderName = userDoc.getString("name");
+        }
+
+        Map<String, Object> messageData = new HashMap<>();
+        messageData.put("text", "");
+        messageData.put("senderId", upload.senderId);
+        messageData.put("senderName", senderName != null ? senderName : MessageWriter.DEFAULT_SENDER_NAME);
+        messageData.put("timestamp", com.google.firebase.firestore.FieldValue.serverTimestamp());
+        messageData.put("type", "image");
+        messageData.put("imageUrl", upload.imageUrl);
+        messageData.put("thumbnailUrl", upload.thumbnailUrl);
+        messageData.put("imagePreview", com.google.firebase.firestore.Blob.fromBytes(readPreview(upload)));
+
+        // Mensaje y resumen del chat en un solo commit
+        WriteBatch batch = MessageWriter.newSendBatch(db, upload.chatId, upload.messageId,
+                messageData, "📷 Imagen", upload.senderId, upload.otherUserId);
+        // Antes del commit: si el proceso muere entre medias, el reintento no lo repite
+        dao.setState(upload.uploadId, PendingUpload.STATE_POSTED);
+        upload.state = PendingUpload.STATE_POSTED;
+        MessageWriter.commit(db, upload.chatId, upload.messageId, batch);
+    }
+
+    private static byte[] readPreview(PendingUpload upload) throws IOException {
+        File file = new File(upload.previewPath);
+        byte[] data = new byte[(int) file.length()];
+        try (InputStream input = new FileInputStream(file)) {
+            int offset = 0;
+            while (offset < data.length) {
+                int read = input.read(data, offset, data.length - offset);
+                if (read < 0) {
+                    break;
+                }
+                offset += read;
+            }
+        }
+        return data;
+    }
+}
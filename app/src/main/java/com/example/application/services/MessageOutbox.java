@@ -0,0 +1,294 @@
+package com.example.application.services;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+
+import com.example.application.data.AppDatabase;
+import com.example.application.data.OutboxDao;
+import com.example.application.data.OutboxMessage;
+import com.example.application.models.Message;
+import com.example.application.repositories.MessageWriter;
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cola de salida de mensajes de texto.
+ *
+ * send() devuelve al momento el mensaje con estado pendiente para pintarlo en el
+ * mismo frame; la escritura en Firestore se hace después, en orden de envío, en
+ * un único hilo. El ID del mensaje se genera en el cliente y es el del documento,
+ * así el listener de mensajes reemplaza la copia local por la del servidor.
+ *
+ * Cada mensaje se confirma una vez y el SDK de Firestore lo entrega aunque no
+ * haya red (su cola de escrituras es persistente y ordenada). Si el proceso
+ * muere antes de la respuesta, OutboxWorker espera a esa cola y comprueba el
+ * mensaje en el servidor en vez de confirmarlo otra vez. Si el servidor lo
+ * rechaza, el mensaje se marca como fallido y se avisa a los oyentes; un rechazo
+ * de un mensaje que ya existe es una copia repetida y cuenta como entregado.
+ */
+public class MessageOutbox {
+
+    private static final String TAG = "MessageOutbox";
+    private static final String WORK_NAME = "message-outbox";
+    private static final long INITIAL_BACKOFF_SECONDS = 5;
+    private static final long FAILED_TTL_MILLIS = 7L * 24 * 60 * 60 * 1000;
+
+    private static MessageOutbox instance;
+
+    public interface PendingCallback {
+        void onPending(List<Message> messages);
+    }
+
+    public interface FailureListener {
+        // Se llama en el hilo principal
+        void onMessageFailed(String chatId, String messageId);
+    }
+
+    private final Context context;
+    private final OutboxDao dao;
+    private final FirebaseFirestore db;
+    // Un solo hilo: garantiza el orden de envío
+    private final Executor executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final List<FailureListener> failureListeners = new CopyOnWriteArrayList<>();
+    // Mensajes con un commit en curso en este proceso (el resto en estado enviado son huérfanos)
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    private MessageOutbox(Context context) {
+        this.context = context.getApplicationContext();
+        this.dao = AppDatabase.getInstance(this.context).outboxDao();
+        this.db = FirebaseFirestore.getInstance();
+    }
+
+    public static synchronized MessageOutbox getInstance(Context context) {
+        if (instance == null) {
+            instance = new MessageOutbox(context);
+        }
+        return instance;
+    }
+
+    /**
+     * Encola un mensaje de texto y devuelve su copia local pendiente. Llamar
+     * desde el hilo principal.
+     */
+    public Message send(String chatId, String otherUserId, String senderId, String senderName, String text) {
+        OutboxMessage outboxMessage = new OutboxMessage();
+        // Generar el ID no hace ninguna petición de red
+        outboxMessage.messageId = db.collection("chats").document(chatId)
+                .collection("messages").document().getId();
+        outboxMessage.chatId = chatId;
+        outboxMessage.otherUserId = otherUserId;
+        outboxMessage.senderId = senderId;
+        outboxMessage.senderName = senderName;
+        outboxMessage.text = text;
+        outboxMessage.createdAt = System.currentTimeMillis();
+
+        executor.execute(() -> {
+            dao.insert(outboxMessage);
+            flushQuietly();
+        });
+        return toMessage(outboxMessage);
+    }
+
+    /**
+     * Descarta los envíos pendientes y su trabajo programado (al cerrar sesión):
+     * sin la sesión del remitente ya no se podrían confirmar.
+     */
+    public void clear() {
+        WorkManager.getInstance(context).cancelUniqueWork(WORK_NAME);
+        executor.execute(() -> {
+            dao.deleteAll();
+            inFlight.clear();
+        });
+    }
+
+    /**
+     * Mensajes de un chat que aún no se han enviado (en cola o fallidos), para
+     * mostrarlos al abrirlo.
+     */
+    public void loadPending(String chatId, PendingCallback callback) {
+        executor.execute(() -> {
+            List<Message> messages = new ArrayList<>();
+            for (OutboxMessage outboxMessage : dao.getForChat(chatId)) {
+                messages.add(toMessage(outboxMessage));
+            }
+            mainHandler.post(() -> callback.onPending(messages));
+        });
+    }
+
+    public void addFailureListener(FailureListener listener) {
+        failureListeners.add(listener);
+    }
+
+    public void removeFailureListener(FailureListener listener) {
+        failureListeners.remove(listener);
+    }
+
+    // Reintentar lo que quedó pendiente (por ejemplo, al arrancar la app)
+    public void flushAsync() {
+        executor.execute(this::flushQuietly);
+    }
+
+    /**
+     * Vacía la cola en orden. Bloqueante; se llama desde el executor o desde OutboxWorker.
+     *
+     * Cada mensaje se confirma una sola vez: el SDK guarda la escritura en su cola
+     * persistente y la reintenta sin red. Solo los que un proceso anterior dejó
+     * confirmados sin respuesta se comprueban antes, y solo se vuelven a poner en
+     * cola si el SDK ya no tiene nada pendiente y el servidor no los tiene.
+     */
+    synchronized void flush() throws Exception {
+        // Los fallidos se muestran en su chat un tiempo para poder verlos; después se olvidan
+        dao.deleteFailedBefore(System.currentTimeMillis() - FAILED_TTL_MILLIS);
+        recoverOrphans();
+
+        List<OutboxMessage> pending = dao.getQueued();
+        while (!pending.isEmpty()) {
+            for (OutboxMessage outboxMessage : pending) {
+                // Antes de confirmar: si el proceso muere entre medias, se recupera como huérfano
+                dao.setState(outboxMessage.messageId, OutboxMessage.STATE_SENT);
+                inFlight.add(outboxMessage.messageId);
+                write(outboxMessage).addOnCompleteListener(executor,
+                        task -> onCommitted(outboxMessage, task.getException()));
+            }
+            // Pueden haber llegado mensajes nuevos mientras se enviaba
+            pending = dao.getQueued();
+        }
+    }
+
+    // Mensajes en estado enviado sin un commit vivo en este proceso
+    private void recoverOrphans() throws Exception {
+        List<OutboxMessage> orphans = new ArrayList<>();
+        for (OutboxMessage outboxMessage : dao.getSent()) {
+            if (!inFlight.contains(outboxMessage.messageId)) {
+                orphans.add(outboxMessage);
+            }
+        }
+        if (orphans.isEmpty()) {
+            return;
+        }
+        // Sin red lanza: se reintenta más tarde y los mensajes nuevos esperan detrás
+        MessageWriter.awaitPendingWrites(db);
+        for (OutboxMessage outboxMessage : orphans) {
+            if (MessageWriter.existsOnServer(db, outboxMessage.chatId, outboxMessage.messageId)) {
+                dao.delete(outboxMessage.messageId);
+            } else {
+                // La escritura se perdió o se rechazó sin que nadie lo viera: otra vez a la cola
+                dao.setState(outboxMessage.messageId, OutboxMessage.STATE_QUEUED);
+            }
+        }
+    }
+
+    // En el executor, cuando el servidor responde al commit
+    private void onCommitted(OutboxMessage outboxMessage, Exception error) {
+        try {
+            resolveCommit(outboxMessage, error);
+        } finally {
+            // Al final: mientras se resuelve, recoverOrphans() no debe tomarlo por huérfano
+            inFlight.remove(outboxMessage.messageId);
+        }
+    }
+
+    private void resolveCommit(OutboxMessage outboxMessage, Exception error) {
+        if (error == null) {
+            dao.delete(outboxMessage.messageId);
+            return;
+        }
+        try {
+            if (MessageWriter.isDelivered(db, outboxMessage.chatId, outboxMessage.messageId, error)) {
+                // Una copia repetida de un envío que ya llegó
+                dao.delete(outboxMessage.messageId);
+                return;
+            }
+        } catch (Exception e) {
+            // No se pudo comprobar: queda como huérfano y lo resuelve el siguiente flush
+            Log.w(TAG, "No se pudo comprobar el mensaje " + outboxMessage.messageId, e);
+            scheduleRetry();
+            return;
+        }
+        if (MessageWriter.isPermanentFailure(error)) {
+            Log.w(TAG, "Mensaje " + outboxMessage.messageId + " rechazado por el servidor", error);
+            dao.setState(outboxMessage.messageId, OutboxMessage.STATE_FAILED);
+            notifyFailed(outboxMessage);
+        } else {
+            dao.setState(outboxMessage.messageId, OutboxMessage.STATE_QUEUED);
+            scheduleRetry();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            Log.w(TAG, "Envío pendiente, se reintentará", e);
+            scheduleRetry();
+        }
+    }
+
+    private void notifyFailed(OutboxMessage outboxMessage) {
+        mainHandler.post(() -> {
+            for (FailureListener listener : failureListeners) {
+                listener.onMessageFailed(outboxMessage.chatId, outboxMessage.messageId);
+            }
+        });
+    }
+
+    private Task<Void> write(OutboxMessage outboxMessage) {
+        Map<String, Object> message = new HashMap<>();
+        message.put("text", outboxMessage.text);
+        message.put("senderId", outboxMessage.senderId);
+        message.put("senderName", outboxMessage.senderName != null
+                ? outboxMessage.senderName : MessageWriter.DEFAULT_SENDER_NAME);
+        message.put("timestamp", FieldValue.serverTimestamp());
+        message.put("type", "text");
+        message.put("imageUrl", null);
+
+        // Mensaje y resumen del chat en un solo commit
+        WriteBatch batch = MessageWriter.newSendBatch(db, outboxMessage.chatId, outboxMessage.messageId,
+                message, outboxMessage.text, outboxMessage.senderId, outboxMessage.otherUserId);
+        return batch.commit();
+    }
+
+    private void scheduleRetry() {
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(OutboxWorker.class)
+                .setConstraints(new Constraints.Builder()
+                        .setRequiredNetworkType(NetworkType.CONNECTED)
+                        .build())
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, INITIAL_BACKOFF_SECONDS, TimeUnit.SECONDS)
+                .build();
+        WorkManager.getInstance(context).enqueueUniqueWork(WORK_NAME, ExistingWorkPolicy.KEEP, request);
+    }
+
+    private static Message toMessage(OutboxMessage outboxMessage) {
+        Message message = new Message(outboxMessage.text, outboxMessage.senderId,
+                outboxMessage.senderName, new Date(outboxMessage.createdAt));
+        message.setMessageId(outboxMessage.messageId);
+        boolean failed = OutboxMessage.STATE_FAILED.equals(outboxMessage.state);
+        message.setPending(!failed);
+        message.setFailed(failed);
+        return message;
+    }
+}
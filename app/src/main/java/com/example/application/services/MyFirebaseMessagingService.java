@@ -12,6 +12,7 @@ import androidx.core.app.NotificationCompat;
 
 import com.example.application.ChatActivity;
 import com.example.application.R;
+import com.example.application.utils.DebugLog;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.messaging.FirebaseMessagingService;
@@ -35,8 +36,7 @@ public class MyFirebaseMessagingService extends FirebaseMessagingService {
     @Override
     public void onNewToken(@NonNull String token) {
         super.onNewToken(token);
-        Log.d(TAG, "Nuevo FCM token: " + token);
-        
+
         // Guardar el token en Firestore
         saveFCMTokenToFirestore(token);
     }
@@ -45,11 +45,11 @@ public class MyFirebaseMessagingService extends FirebaseMessagingService {
     public void onMessageReceived(@NonNull RemoteMessage remoteMessage) {
         super.onMessageReceived(remoteMessage);
         
-        Log.d(TAG, "Mensaje recibido de: " + remoteMessage.getFrom());
+        if (DebugLog.ENABLED) DebugLog.d(TAG, "Mensaje recibido de: " + remoteMessage.getFrom());
 
         // Verificar si el mensaje tiene datos
         if (!remoteMessage.getData().isEmpty()) {
-            Log.d(TAG, "Datos del mensaje: " + remoteMessage.getData());
+            if (DebugLog.ENABLED) DebugLog.d(TAG, "Datos del mensaje: " + remoteMessage.getData());
             
             String title = remoteMessage.getData().get("title");
             String body = remoteMessage.getData().get("body");
@@ -63,7 +63,7 @@ public class MyFirebaseMessagingService extends FirebaseMessagingService {
 
         // Verificar si el mensaje tiene notificación
         if (remoteMessage.getNotification() != null) {
-            Log.d(TAG, "Cuerpo de la notificación: " + remoteMessage.getNotification().getBody());
+            if (DebugLog.ENABLED) DebugLog.d(TAG, "Cuerpo de la notificación: " + remoteMessage.getNotification().getBody());
             String title = remoteMessage.getNotification().getTitle();
             String body = remoteMessage.getNotification().getBody();
             
@@ -151,14 +151,16 @@ public class MyFirebaseMessagingService extends FirebaseMessagingService {
             db.collection("users")
                     .document(userId)
                     .update(tokenData)
-                    .addOnSuccessListener(aVoid -> 
-                        Log.d(TAG, "Token FCM guardado exitosamente"))
+                    .addOnSuccessListener(aVoid -> {
+                        if (DebugLog.ENABLED) DebugLog.d(TAG, "Token FCM guardado exitosamente");
+                    })
                     .addOnFailureListener(e -> {
                         Log.e(TAG, "Error al guardar token FCM", e);
                         // Si el documento no existe, crearlo
                         db.collection("users").document(userId).set(tokenData)
-                            .addOnSuccessListener(aVoid2 -> 
-                                Log.d(TAG, "Token FCM guardado en nuevo documento"))
+                            .addOnSuccessListener(aVoid2 -> {
+                                if (DebugLog.ENABLED) DebugLog.d(TAG, "Token FCM guardado en nuevo documento");
+                            })
                             .addOnFailureListener(e2 -> 
                                 Log.e(TAG, "Error al crear documento con token", e2));
                     });
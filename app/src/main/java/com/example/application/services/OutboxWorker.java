@@ -0,0 +1,34 @@
+package com.example.application.services;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+/**
+ * Reintenta vaciar la cola de MessageOutbox. flush() solo lanza errores
+ * transitorios (los rechazos del servidor marcan el mensaje como fallido), así
+ * que si vuelve a fallar WorkManager lo programa de nuevo con backoff exponencial.
+ */
+public class OutboxWorker extends Worker {
+
+    private static final String TAG = "OutboxWorker";
+
+    public OutboxWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        try {
+            MessageOutbox.getInstance(getApplicationContext()).flush();
+            return Result.success();
+        } catch (Exception e) {
+            Log.w(TAG, "La cola sigue pendiente (intento " + getRunAttemptCount() + ")", e);
+            return Result.retry();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.application.services;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.DefaultLifecycleObserver;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.ProcessLifecycleOwner;
+
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.SetOptions;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Presencia del usuario actual para todo el proceso.
+ *
+ * Escribe "online"/"lastSeen" en users/{uid} al pasar la app a primer plano o a
+ * segundo plano (ProcessLifecycleOwner) y, mientras está visible, con un
+ * keep-alive cada KEEP_ALIVE_INTERVAL. Los lectores deciden si un usuario sigue
+ * online comparando lastSeen con la ventana del keep-alive (isOnline).
+ */
+public class PresenceManager implements DefaultLifecycleObserver {
+
+    private static final String TAG = "PresenceManager";
+
+    public static final long KEEP_ALIVE_INTERVAL = 60_000; // 60 segundos
+    // Un usuario deja de estar online si se pierden dos keep-alive seguidos
+    public static final long STALE_AFTER = KEEP_ALIVE_INTERVAL * 2 + 10_000;
+
+    private static PresenceManager instance;
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable keepAliveRunnable = new Runnable() {
+        @Override
+        public void run() {
+            writePresence(true);
+            handler.postDelayed(this, KEEP_ALIVE_INTERVAL);
+        }
+    };
+    private boolean foreground;
+    private boolean installed;
+
+    private PresenceManager() {
+    }
+
+    public static synchronized PresenceManager getInstance() {
+        if (instance == null) {
+            instance = new PresenceManager();
+        }
+        return instance;
+    }
+
+    /**
+     * Se registra en el ciclo de vida del proceso. Llamar una vez desde Application.
+     */
+    public void install() {
+        if (installed) {
+            return;
+        }
+        installed = true;
+        ProcessLifecycleOwner.get().getLifecycle().addObserver(this);
+    }
+
+    @Override
+    public void onStart(@NonNull LifecycleOwner owner) {
+        // La app pasa a primer plano
+        foreground = true;
+        startKeepAlive();
+    }
+
+    @Override
+    public void onStop(@NonNull LifecycleOwner owner) {
+        // La app pasa a segundo plano
+        foreground = false;
+        handler.removeCallbacks(keepAliveRunnable);
+        writePresence(false);
+    }
+
+    /**
+     * Publica la presencia inmediatamente, por ejemplo justo después de iniciar sesión.
+     */
+    public void refresh() {
+        if (foreground) {
+            startKeepAlive();
+        }
+    }
+
+    /**
+     * Marca al usuario como offline. Llamar antes de cerrar sesión, mientras aún
+     * hay un usuario autenticado.
+     */
+    public void goOffline() {
+        handler.removeCallbacks(keepAliveRunnable);
+        writePresence(false);
+    }
+
+    /**
+     * Un usuario está online si su último estado publicado es online y el
+     * keep-alive no ha caducado.
+     */
+    public static boolean isOnline(Boolean online, Date lastSeen) {
+        if (online == null || !online || lastSeen == null) {
+            return false;
+        }
+        return System.currentTimeMillis() - lastSeen.getTime() < STALE_AFTER;
+    }
+
+    private void startKeepAlive() {
+        handler.removeCallbacks(keepAliveRunnable);
+        handler.post(keepAliveRunnable);
+    }
+
+    private void writePresence(boolean online) {
+        FirebaseUser currentUser = FirebaseAuth.getInstance().getCurrentUser();
+        if (currentUser == null) {
+            return;
+        }
+
+        Map<String, Object> presenceData = new HashMap<>();
+        presenceData.put("online", online);
+        presenceData.put("lastSeen", FieldValue.serverTimestamp());
+
+        // set+merge funciona exista o no el documento: una sola escritura
+        FirebaseFirestore.getInstance()
+                .collection("users")
+                .document(currentUser.getUid())
+                .set(presenceData, SetOptions.merge())
+                .addOnFailureListener(e -> Log.e(TAG, "Error al actualizar presencia", e));
+    }
+}
@@ -1,7 +1,6 @@
 package com.example.application.ui.home;
 
 import android.os.Bundle;
-import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -11,27 +10,29 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import com.example.application.databinding.FragmentHomeBinding;
 import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.QueryDocumentSnapshot;
-import java.util.ArrayList;
 import java.util.List;
 import android.widget.Toast;
 import androidx.appcompat.app.AlertDialog;
 import com.example.application.R;
 import com.example.application.ChatActivity;
 import com.example.application.adapters.ChatAdapter;
+import com.example.application.adapters.MessageViewPool;
 import com.example.application.models.Chat;
+import com.example.application.repositories.ChatListCache;
+import com.example.application.repositories.ChatListRepository;
+import com.example.application.repositories.DirectChatRepository;
+import com.example.application.repositories.EmailLookupRepository;
+import com.example.application.repositories.PresenceCache;
+import com.example.application.repositories.UserRepository;
+import com.example.application.utils.DebugLog;
 
 public class HomeFragment extends Fragment {
 
     private FragmentHomeBinding binding;
     private RecyclerView recyclerView;
-    private FirebaseFirestore db;
     private FirebaseAuth mAuth;
     private ChatAdapter chatAdapter;
-    private android.os.Handler handler;
-    private Runnable refreshRunnable;
-    private static final long REFRESH_INTERVAL = 5000; // 5 segundos
+    private ChatListRepository chatListRepository;
 
     public View onCreateView(@NonNull LayoutInflater inflater,
                              ViewGroup container, Bundle savedInstanceState) {
@@ -40,8 +41,8 @@ public class HomeFragment extends Fragment {
         View root = binding.getRoot();
 
         // Initialize Firebase
-        db = FirebaseFirestore.getInstance();
         mAuth = FirebaseAuth.getInstance();
+        chatListRepository = ChatListRepository.getInstance(requireContext());
 
         // Setup RecyclerView
         recyclerView = binding.chatsRecyclerView;
@@ -58,8 +59,11 @@ public class HomeFragment extends Fragment {
         });
         recyclerView.setAdapter(chatAdapter);
 
-        // Iniciar auto-refresh cada 5 segundos
-        startAutoRefresh();
+        // Pintar al instante la última lista guardada; el listener la reconcilia después
+        showCachedChats();
+
+        // Escuchar los chats en tiempo real (solo se leen los cambios)
+        startListeningChats();
         
         // Setup FloatingActionButton
         binding.fabAddChat.setOnClickListener(v -> showAddChatDialog());
@@ -103,109 +107,61 @@ public class HomeFragment extends Fragment {
 
     private void searchUserAndCreateChat(String email) {
         // Normalizar el email (convertir a minúsculas y quitar espacios)
-        String normalizedEmail = email.toLowerCase().trim();
+        String normalizedEmail = EmailLookupRepository.normalize(email);
         
         // Mostrar lo que estamos buscando
         Toast.makeText(requireContext(), "Buscando: " + normalizedEmail, Toast.LENGTH_SHORT).show();
         
-        // Primero, intentar listar TODOS los usuarios para debug
-        db.collection("users")
-            .get()
-            .addOnSuccessListener(allUsers -> {
-                android.util.Log.d("HomeFragment", "Total usuarios en Firestore: " + allUsers.size());
-                for (com.google.firebase.firestore.QueryDocumentSnapshot doc : allUsers) {
-                    String userEmail = doc.getString("email");
-                    String userName = doc.getString("name");
-                    android.util.Log.d("HomeFragment", "Usuario encontrado - Email: " + userEmail + ", Nombre: " + userName);
+        // Resolver el email con el índice emailLookup (una lectura, con caché local)
+        EmailLookupRepository.getInstance(requireContext()).findByEmail(normalizedEmail, new EmailLookupRepository.Callback() {
+            @Override
+            public void onResult(EmailLookupRepository.Result result) {
+                if (!isAdded() || getContext() == null) {
+                    return;
                 }
-            });
-        
-        // Buscar usuario en Firestore por email
-        db.collection("users")
-            .whereEqualTo("email", normalizedEmail)
-            .get()
-            .addOnSuccessListener(queryDocumentSnapshots -> {
-                android.util.Log.d("HomeFragment", "Resultados de búsqueda: " + queryDocumentSnapshots.size());
                 
-                if (!queryDocumentSnapshots.isEmpty()) {
-                    // Usuario encontrado
-                    String otherUserId = queryDocumentSnapshots.getDocuments().get(0).getId();
-                    String otherUserName = queryDocumentSnapshots.getDocuments().get(0).getString("name");
-                    String currentUserId = mAuth.getCurrentUser().getUid();
-                    
-                    android.util.Log.d("HomeFragment", "Usuario encontrado - ID: " + otherUserId + ", Nombre: " + otherUserName);
-                    
-                    // Verificar que no sea el mismo usuario
-                    if (otherUserId.equals(currentUserId)) {
-                        if (isAdded() && getContext() != null) {
-                            Toast.makeText(requireContext(), "No puedes crear un chat contigo mismo", Toast.LENGTH_SHORT).show();
-                        }
-                        return;
-                    }
-
-                    // Crear o buscar chat existente
-                    createOrGetChat(currentUserId, otherUserId, otherUserName);
-                } else {
-                    if (isAdded() && getContext() != null) {
-                        Toast.makeText(requireContext(), "Usuario no encontrado. Email buscado: " + normalizedEmail, Toast.LENGTH_LONG).show();
-                    }
-                }
-            })
-            .addOnFailureListener(e -> {
-                android.util.Log.e("HomeFragment", "Error al buscar: " + e.getMessage(), e);
-                if (isAdded() && getContext() != null) {
-                    Toast.makeText(requireContext(), "Error al buscar usuario: " + e.getMessage(), Toast.LENGTH_LONG).show();
-                }
-            });
-    }
-
-    private void createOrGetChat(String currentUserId, String otherUserId, String otherUserName) {
-        // Verificar si ya existe un chat entre estos usuarios
-        db.collection("chats")
-            .whereArrayContains("participants", currentUserId)
-            .get()
-            .addOnSuccessListener(queryDocumentSnapshots -> {
-                // Verificar que el fragment sigue activo
-                if (!isAdded() || getContext() == null) {
+                if (result == null) {
+                    Toast.makeText(requireContext(), "Usuario no encontrado. Email buscado: " + normalizedEmail, Toast.LENGTH_LONG).show();
                     return;
                 }
                 
-                String chatId = null;
-                for (com.google.firebase.firestore.QueryDocumentSnapshot doc : queryDocumentSnapshots) {
-                    java.util.List<String> participants = (java.util.List<String>) doc.get("participants");
-                    if (participants != null && participants.contains(otherUserId)) {
-                        chatId = doc.getId();
-                        break;
-                    }
+                String currentUserId = mAuth.getCurrentUser().getUid();
+                if (DebugLog.ENABLED) DebugLog.d("HomeFragment", "Usuario encontrado - ID: " + result.userId + ", Nombre: " + result.name);
+                
+                // Verificar que no sea el mismo usuario
+                if (result.userId.equals(currentUserId)) {
+                    Toast.makeText(requireContext(), "No puedes crear un chat contigo mismo", Toast.LENGTH_SHORT).show();
+                    return;
                 }
 
-                if (chatId != null) {
-                    Toast.makeText(requireContext(), "Chat con " + otherUserName + " ya existe", Toast.LENGTH_SHORT).show();
-                    loadChats();
-                } else {
-                    // Crear nuevo chat
-                    createNewChat(currentUserId, otherUserId, otherUserName);
+                // Crear o buscar chat existente
+                createOrGetChat(currentUserId, result.userId, result.name);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                android.util.Log.e("HomeFragment", "Error al buscar: " + e.getMessage(), e);
+                if (isAdded() && getContext() != null) {
+                    Toast.makeText(requireContext(), "Error al buscar usuario: " + e.getMessage(), Toast.LENGTH_LONG).show();
                 }
-            });
+            }
+        });
     }
 
-    private void createNewChat(String currentUserId, String otherUserId, String otherUserName) {
-        java.util.Map<String, Object> chat = new java.util.HashMap<>();
-        chat.put("participants", java.util.Arrays.asList(currentUserId, otherUserId));
-        chat.put("createdAt", com.google.firebase.firestore.FieldValue.serverTimestamp());
-        chat.put("lastMessage", "");
-        chat.put("lastMessageTime", com.google.firebase.firestore.FieldValue.serverTimestamp());
-        chat.put("lastMessageSenderId", "");
-
-        db.collection("chats")
-            .add(chat)
-            .addOnSuccessListener(documentReference -> {
+    private void createOrGetChat(String currentUserId, String otherUserId, String otherUserName) {
+        // Un solo documento con ID determinista: se lee o se crea en una transacción
+        com.example.application.models.User currentUser = UserRepository.getInstance(requireContext()).peek(currentUserId);
+        DirectChatRepository.getInstance()
+            .getOrCreateChat(currentUserId, currentUser != null ? currentUser.getName() : null,
+                    otherUserId, otherUserName)
+            .addOnSuccessListener(result -> {
                 // Verificar que el fragment sigue activo
                 if (!isAdded() || getContext() == null) {
                     return;
                 }
-                Toast.makeText(requireContext(), "Chat con " + otherUserName + " creado", Toast.LENGTH_SHORT).show();
-                loadChats();
+                // El listener de chats recibirá el nuevo documento
+                String message = result.created ? " creado" : " ya existe";
+                Toast.makeText(requireContext(), "Chat con " + otherUserName + message, Toast.LENGTH_SHORT).show();
             })
             .addOnFailureListener(e -> {
                 // Verificar que el fragment sigue activo
@@ -216,232 +172,55 @@ public class HomeFragment extends Fragment {
             });
     }
 
-    private void loadChats() {
-        // Verificar que el fragment aún está activo
-        if (!isAdded() || getContext() == null) {
-            Log.d("HomeFragment", "Fragment no está activo, cancelando loadChats");
+    private void showCachedChats() {
+        if (mAuth.getCurrentUser() == null) {
             return;
         }
-        
-        String currentUserId = mAuth.getCurrentUser().getUid();
-        
-        db.collection("chats")
-            .whereArrayContains("participants", currentUserId)
-            .get()
-            .addOnSuccessListener(queryDocumentSnapshots -> {
-                // Verificar que el fragment sigue activo
+        String userId = mAuth.getCurrentUser().getUid();
+        if (chatListRepository.hasChats(userId)) {
+            // El modelo en memoria se entrega al empezar a escuchar
+            return;
+        }
+        List<Chat> cachedChats = ChatListCache.getInstance(requireContext()).read(userId);
+        if (cachedChats.isEmpty()) {
+            return;
+        }
+        chatListRepository.seed(userId, cachedChats);
+        // Con la lista vacía, submitList la aplica sin diff, en este mismo frame
+        chatAdapter.updateChats(cachedChats);
+        binding.emptyTextView.setVisibility(View.GONE);
+    }
+
+    private void startListeningChats() {
+        // Verificar que el fragment está activo antes de iniciar
+        if (!isAdded() || getContext() == null || mAuth.getCurrentUser() == null) {
+            if (DebugLog.ENABLED) DebugLog.d("HomeFragment", "Fragment no activo, no se inicia el listener de chats");
+            return;
+        }
+
+        chatListRepository.start(mAuth.getCurrentUser().getUid(), new ChatListRepository.Listener() {
+            @Override
+            public void onChatsChanged(List<Chat> chats) {
+                // Verificar que el fragment sigue activo antes de actualizar UI
                 if (!isAdded() || getContext() == null || binding == null) {
                     return;
                 }
-                
-                if (queryDocumentSnapshots != null && !queryDocumentSnapshots.isEmpty()) {
-                    List<Chat> chatList = new ArrayList<>();
-                    int[] pendingTasks = {queryDocumentSnapshots.size()};
-                    
-                    for (QueryDocumentSnapshot doc : queryDocumentSnapshots) {
-                        Chat chat = new Chat();
-                        chat.setChatId(doc.getId());
-                        chat.setParticipants((List<String>) doc.get("participants"));
-                        chat.setLastMessage(doc.getString("lastMessage"));
-                        chat.setLastMessageSenderId(doc.getString("lastMessageSenderId"));
-                        
-                        // Convertir Timestamp a Date
-                        com.google.firebase.Timestamp timestamp = doc.getTimestamp("lastMessageTime");
-                        if (timestamp != null) {
-                            chat.setLastMessageTime(timestamp.toDate());
-                        }
-                        
-                        // Obtener información del otro usuario
-                        List<String> participants = chat.getParticipants();
-                        String otherUserId = participants.get(0).equals(currentUserId) 
-                                ? participants.get(1) : participants.get(0);
-                        
-                        chat.setOtherUserId(otherUserId);
-                        
-                        // Cargar datos del usuario y estado online
-                        db.collection("users").document(otherUserId)
-                            .get()
-                            .addOnSuccessListener(userDoc -> {
-                                // Verificar que el fragment sigue activo
-                                if (!isAdded() || getContext() == null || binding == null) {
-                                    return;
-                                }
-                                
-                                if (userDoc.exists()) {
-                                    chat.setOtherUserName(userDoc.getString("name"));
-                                    chat.setOtherUserEmail(userDoc.getString("email"));
-                                    
-                                    // Determinar si el usuario está realmente online usando timestamp
-                                    boolean isOnline = isUserReallyOnline(userDoc);
-                                    chat.setOtherUserOnline(isOnline);
-                                }
-                                
-                                // Contar mensajes no leídos
-                                db.collection("chats")
-                                    .document(chat.getChatId())
-                                    .collection("messages")
-                                    .whereEqualTo("senderId", otherUserId)
-                                    .whereEqualTo("read", false)
-                                    .get()
-                                    .addOnSuccessListener(messagesSnapshot -> {
-                                        // Verificar que el fragment sigue activo antes de actualizar UI
-                                        if (!isAdded() || getContext() == null || binding == null) {
-                                            return;
-                                        }
-                                        
-                                        chat.setUnreadCount(messagesSnapshot.size());
-                                        
-                                        chatList.add(chat);
-                                        pendingTasks[0]--;
-                                        
-                                        if (pendingTasks[0] == 0) {
-                                            // Ordenar por fecha del último mensaje
-                                            chatList.sort((c1, c2) -> {
-                                                if (c1.getLastMessageTime() == null) return 1;
-                                                if (c2.getLastMessageTime() == null) return -1;
-                                                return c2.getLastMessageTime().compareTo(c1.getLastMessageTime());
-                                            });
-                                            
-                                            chatAdapter.updateChats(chatList);
-                                            binding.emptyTextView.setVisibility(View.GONE);
-                                        }
-                                    })
-                                    .addOnFailureListener(e -> {
-                                        // Verificar que el fragment sigue activo
-                                        if (!isAdded() || getContext() == null || binding == null) {
-                                            return;
-                                        }
-                                        
-                                        chat.setUnreadCount(0);
-                                        chatList.add(chat);
-                                        pendingTasks[0]--;
-                                        
-                                        if (pendingTasks[0] == 0) {
-                                            chatList.sort((c1, c2) -> {
-                                                if (c1.getLastMessageTime() == null) return 1;
-                                                if (c2.getLastMessageTime() == null) return -1;
-                                                return c2.getLastMessageTime().compareTo(c1.getLastMessageTime());
-                                            });
-                                            
-                                            chatAdapter.updateChats(chatList);
-                                            binding.emptyTextView.setVisibility(View.GONE);
-                                        }
-                                    });
-                            })
-                            .addOnFailureListener(e -> {
-                                // Verificar que el fragment sigue activo
-                                if (!isAdded() || getContext() == null || binding == null) {
-                                    return;
-                                }
-                                
-                                // Si falla cargar usuario, usar valores por defecto
-                                chat.setOtherUserName("Usuario");
-                                chat.setOtherUserEmail("");
-                                chat.setOtherUserOnline(false);
-                                chat.setUnreadCount(0);
-                                
-                                chatList.add(chat);
-                                pendingTasks[0]--;
-                                
-                                if (pendingTasks[0] == 0) {
-                                    chatList.sort((c1, c2) -> {
-                                        if (c1.getLastMessageTime() == null) return 1;
-                                        if (c2.getLastMessageTime() == null) return -1;
-                                        return c2.getLastMessageTime().compareTo(c1.getLastMessageTime());
-                                    });
-                                    
-                                    chatAdapter.updateChats(chatList);
-                                    binding.emptyTextView.setVisibility(View.GONE);
-                                }
-                            });
-                    }
-                } else {
-                    // No hay chats - verificar fragment activo antes de actualizar UI
-                    if (isAdded() && getContext() != null && binding != null) {
-                        chatAdapter.updateChats(new ArrayList<>());
-                        binding.emptyTextView.setVisibility(View.VISIBLE);
-                    }
+                chatAdapter.updateChats(chats);
+                binding.emptyTextView.setVisibility(chats.isEmpty() ? View.VISIBLE : View.GONE);
+                // Guardar lo pintado para el próximo arranque en frío
+                if (mAuth.getCurrentUser() != null) {
+                    ChatListCache.getInstance(requireContext()).writeAsync(mAuth.getCurrentUser().getUid(), chats);
                 }
-            })
-            .addOnFailureListener(e -> {
-                // Verificar que el fragment sigue activo
+            }
+
+            @Override
+            public void onError(Exception e) {
                 if (!isAdded() || getContext() == null || binding == null) {
                     return;
                 }
                 Toast.makeText(requireContext(), "Error al cargar chats", Toast.LENGTH_SHORT).show();
-            });
-    }
-    
-    private void startAutoRefresh() {
-        // Verificar que el fragment está activo antes de iniciar
-        if (!isAdded() || getContext() == null) {
-            Log.d("HomeFragment", "Fragment no activo, no se inicia auto-refresh");
-            return;
-        }
-        
-        if (handler == null) {
-            handler = new android.os.Handler();
-        }
-        
-        // Detener cualquier refresh existente
-        stopAutoRefresh();
-        
-        refreshRunnable = new Runnable() {
-            @Override
-            public void run() {
-                // Verificar que el fragment sigue activo antes de cada refresh
-                if (isAdded() && getContext() != null && binding != null) {
-                    loadChats();
-                    handler.postDelayed(this, REFRESH_INTERVAL);
-                } else {
-                    Log.d("HomeFragment", "Fragment inactivo, deteniendo auto-refresh");
-                }
             }
-        };
-        handler.post(refreshRunnable);
-    }
-    
-    private void stopAutoRefresh() {
-        if (handler != null && refreshRunnable != null) {
-            handler.removeCallbacks(refreshRunnable);
-        }
-    }
-    
-    /**
-     * Determina si un usuario está realmente online basándose en:
-     * 1. El campo "online" debe ser true
-     * 2. El lastSeen debe ser reciente (menos de 10 segundos)
-     * 
-     * Con heartbeat cada 3 segundos, un usuario activo nunca excederá 10 segundos.
-     * Esto previene que usuarios aparezcan como "online" permanentemente.
-     */
-    private boolean isUserReallyOnline(com.google.firebase.firestore.DocumentSnapshot userDoc) {
-        // Verificar campo online
-        Boolean online = userDoc.getBoolean("online");
-        if (online == null || !online) {
-            return false;
-        }
-        
-        // Verificar timestamp lastSeen
-        com.google.firebase.Timestamp lastSeen = userDoc.getTimestamp("lastSeen");
-        if (lastSeen == null) {
-            return false;
-        }
-        
-        // Calcular diferencia en segundos
-        long currentTimeMillis = System.currentTimeMillis();
-        long lastSeenMillis = lastSeen.toDate().getTime();
-        long differenceSeconds = (currentTimeMillis - lastSeenMillis) / 1000;
-        
-        // Usuario está online solo si lastSeen fue actualizado en los últimos 10 segundos
-        // (heartbeat cada 3 seg + margen para latencia de red)
-        boolean isRecent = differenceSeconds < 10;
-        
-        if (!isRecent) {
-            Log.d("HomeFragment", "👤 Usuario con online=true pero lastSeen hace " + differenceSeconds + "s → OFFLINE");
-        }
-        
-        return isRecent;
+        });
     }
 
     private String getOtherUserId(com.example.application.models.Chat chat) {
@@ -458,28 +237,37 @@ public class HomeFragment extends Fragment {
     @Override
     public void onResume() {
         super.onResume();
-        // Reiniciar auto-refresh cuando volvemos al fragmento
+        PresenceCache.getInstance().resume();
+        // Volver a escuchar los chats cuando volvemos al fragmento
         if (binding != null) {
-            Log.d("HomeFragment", "onResume - Iniciando auto-refresh");
-            startAutoRefresh();
+            if (DebugLog.ENABLED) DebugLog.d("HomeFragment", "onResume - Escuchando chats");
+            startListeningChats();
+
+            // Con la lista ya pintada, preparar las filas del próximo chat que se abra
+            MessageViewPool pool = MessageViewPool.getInstance(requireContext());
+            binding.getRoot().post(pool::prewarm);
         }
     }
     
     @Override
     public void onPause() {
         super.onPause();
-        // Detener auto-refresh cuando salimos del fragmento
-        Log.d("HomeFragment", "onPause - Deteniendo auto-refresh");
-        stopAutoRefresh();
+        // Dejar de escuchar cuando salimos del fragmento
+        if (DebugLog.ENABLED) DebugLog.d("HomeFragment", "onPause - Deteniendo listener de chats");
+        chatListRepository.stop();
+        // Sin la lista en pantalla no hace falta escuchar la presencia ni caducarla
+        PresenceCache.getInstance().pause();
     }
     
     @Override
     public void onDestroyView() {
         super.onDestroyView();
         
-        // Detener auto-refresh
-        stopAutoRefresh();
+        // Detener listener de chats
+        chatListRepository.stop();
+        // Soltar el adapter para que las filas dejen de observar la presencia
+        recyclerView.setAdapter(null);
         
         binding = null;
     }
-}
\ No newline at end of file
+}
@@ -13,16 +13,20 @@ import androidx.fragment.app.Fragment;
 
 import com.example.application.LoginActivity;
 import com.example.application.R;
+import com.example.application.repositories.ChatListCache;
+import com.example.application.repositories.ChatMessageSource;
+import com.example.application.repositories.UserRepository;
+import com.example.application.services.ImageUploadQueue;
+import com.example.application.services.MessageOutbox;
+import com.example.application.services.PresenceManager;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
-import com.google.firebase.firestore.FirebaseFirestore;
 
 public class ProfileFragment extends Fragment {
 
     private TextView profileNameTextView, profileEmailTextView, profileAvatarTextView;
     private Button logoutButton;
     private FirebaseAuth mAuth;
-    private FirebaseFirestore db;
 
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater,
@@ -31,7 +35,6 @@ public class ProfileFragment extends Fragment {
 
         // Inicializar Firebase
         mAuth = FirebaseAuth.getInstance();
-        db = FirebaseFirestore.getInstance();
 
         // Inicializar vistas
         profileAvatarTextView = root.findViewById(R.id.profileAvatarTextView);
@@ -67,20 +70,19 @@ public class ProfileFragment extends Fragment {
                 profileEmailTextView.setText(email);
             }
 
-            // Cargar nombre desde Firestore
-            db.collection("users").document(userId)
-                    .get()
-                    .addOnSuccessListener(documentSnapshot -> {
-                        if (documentSnapshot.exists()) {
-                            String name = documentSnapshot.getString("name");
-                            if (name != null && !name.isEmpty()) {
-                                profileNameTextView.setText(name);
-                                // Mostrar iniciales en el avatar
-                                String initials = getInitials(name);
-                                profileAvatarTextView.setText(initials);
-                            }
-                        }
-                    });
+            // Cargar nombre (caché compartida de perfiles)
+            UserRepository.getInstance(requireContext()).get(userId, user -> {
+                if (!isAdded() || user == null) {
+                    return;
+                }
+                String name = user.getName();
+                if (name != null && !name.isEmpty()) {
+                    profileNameTextView.setText(name);
+                    // Mostrar iniciales en el avatar
+                    String initials = getInitials(name);
+                    profileAvatarTextView.setText(initials);
+                }
+            });
         }
     }
 
@@ -96,6 +98,13 @@ public class ProfileFragment extends Fragment {
     }
 
     private void logout() {
+        // Marcar offline antes de perder la autenticación
+        PresenceManager.getInstance().goOffline();
+        // Nada del usuario saliente debe quedar en el dispositivo ni enviarse después
+        ChatListCache.getInstance(requireContext()).clear();
+        ChatMessageSource.clearStore(requireContext());
+        MessageOutbox.getInstance(requireContext()).clear();
+        ImageUploadQueue.getInstance(requireContext()).clear();
         mAuth.signOut();
         Intent intent = new Intent(getActivity(), LoginActivity.class);
         intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
@@ -0,0 +1,23 @@
+package com.example.application.utils;
+
+/**
+ * Iniciales que se muestran en los avatares. Java puro (sin clases de Android)
+ * para poder medirlo también en los benchmarks JMH de la JVM.
+ */
+public final class Avatars {
+
+    private Avatars() {
+    }
+
+    public static String getInitials(String name) {
+        if (name == null || name.isEmpty()) {
+            return "U";
+        }
+        String[] parts = name.trim().split(" ");
+        if (parts.length >= 2) {
+            return (parts[0].charAt(0) + "" + parts[1].charAt(0)).toUpperCase();
+        } else {
+            return name.substring(0, Math.min(2, name.length())).toUpperCase();
+        }
+    }
+}
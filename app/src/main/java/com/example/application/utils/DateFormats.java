@@ -0,0 +1,103 @@
+package com.example.application.utils;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Formateadores de fecha reutilizables. SimpleDateFormat no es seguro entre hilos,
+ * así que cada hilo tiene los suyos; se recrean si cambia la zona o el idioma.
+ * Los textos de cada día se cachean por clave de día (DayKeys).
+ */
+public final class DateFormats {
+
+    // Días cuyo texto se recuerda por hilo (potencia de 2: caché de acceso directo)
+    private static final int CACHED_DAYS = 64;
+
+    private static final class Formats {
+        final TimeZone zone;
+        final Locale locale;
+        final SimpleDateFormat time;
+        final SimpleDateFormat day;
+        final SimpleDateFormat shortDay;
+        // Caché indexada por clave de día, sin boxing: la posición es dayKey & (CACHED_DAYS - 1)
+        final int[] dayKeys = new int[CACHED_DAYS];
+        final String[] dayTexts = new String[CACHED_DAYS];
+
+        Formats(TimeZone zone, Locale locale) {
+            this.zone = zone;
+            this.locale = locale;
+            time = create("hh:mm a", zone, locale);
+            day = create("dd/MM/yyyy", zone, locale);
+            shortDay = create("dd/MM/yy", zone, locale);
+        }
+
+        private static SimpleDateFormat create(String pattern, TimeZone zone, Locale locale) {
+            SimpleDateFormat format = new SimpleDateFormat(pattern, locale);
+            format.setTimeZone(zone);
+            return format;
+        }
+    }
+
+    private static final ThreadLocal<Formats> FORMATS = new ThreadLocal<>();
+
+    private DateFormats() {
+    }
+
+    // Hora de un mensaje, "hh:mm a"
+    public static String formatTime(Date date) {
+        if (date == null) {
+            return "";
+        }
+        return formats().time.format(date);
+    }
+
+    // Fecha corta, "dd/MM/yy"
+    public static String formatShortDate(Date date) {
+        if (date == null) {
+            return "";
+        }
+        return formats().shortDay.format(date);
+    }
+
+    /**
+     * Texto del separador de fecha: "Hoy", "Ayer" o "dd/MM/yyyy". today es
+     * DayKeys.today(), que el llamador calcula una vez por pasada.
+     */
+    public static String formatDay(Date date, int dayKey, int today) {
+        if (date == null) {
+            return "";
+        }
+        if (dayKey == today) {
+            return "Hoy";
+        } else if (dayKey == today - 1) {
+            return "Ayer";
+        }
+        Formats formats = formats();
+        int slot = dayKey & (CACHED_DAYS - 1);
+        String text = formats.dayTexts[slot];
+        if (text == null || formats.dayKeys[slot] != dayKey) {
+            text = formats.day.format(date);
+            formats.dayKeys[slot] = dayKey;
+            formats.dayTexts[slot] = text;
+        }
+        return text;
+    }
+
+    // Los formateadores de cada hilo se recrean en su próximo uso
+    static void invalidate() {
+        FORMATS.remove();
+    }
+
+    private static Formats formats() {
+        TimeZone zone = DayKeys.zone();
+        Locale locale = Locale.getDefault();
+        Formats formats = FORMATS.get();
+        if (formats == null || formats.zone != zone || !formats.locale.equals(locale)) {
+            formats = new Formats(zone, locale);
+            FORMATS.set(formats);
+        }
+        return formats;
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.application.utils;
+
+import com.example.application.models.ChatItem;
+import com.example.application.models.Message;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Agrupación de los mensajes por día con sus separadores de fecha. Java puro (sin
+ * clases de Android) para poder medirlo también en los benchmarks JMH de la JVM.
+ */
+public final class DateGrouping {
+
+    private DateGrouping() {
+    }
+
+    /**
+     * Intercala un separador de fecha antes del primer mensaje de cada día. Los
+     * mensajes deben venir ordenados por hora; currentUserId decide qué mensajes
+     * son enviados y cuáles recibidos. El texto de cada separador se forma al
+     * enlazarlo con getDateText(item, today).
+     */
+    public static List<ChatItem> buildItems(List<Message> messages, String currentUserId) {
+        List<ChatItem> items = new ArrayList<>(messages.size() + 8);
+        int previousKey = DayKeys.NO_DAY;
+
+        for (int i = 0; i < messages.size(); i++) {
+            Message currentMessage = messages.get(i);
+            Date timestamp = currentMessage.getTimestamp();
+            int dayKey = DayKeys.of(timestamp);
+
+            // Separador al empezar un día nuevo (y para cada mensaje sin hora)
+            if (i == 0 || dayKey == DayKeys.NO_DAY || dayKey != previousKey) {
+                items.add(new ChatItem(timestamp));
+            }
+            previousKey = dayKey;
+
+            // Agregar el mensaje
+            items.add(new ChatItem(currentMessage, currentUserId));
+        }
+        return items;
+    }
+
+    public static boolean isSameDay(Date date1, Date date2) {
+        return DayKeys.isSameDay(date1, date2);
+    }
+
+    public static String getDateText(Date date) {
+        return DateFormats.formatDay(date, DayKeys.of(date), DayKeys.today());
+    }
+
+    // Texto de un separador respecto al día today (DayKeys.today())
+    public static String getDateText(ChatItem separator, int today) {
+        return DateFormats.formatDay(separator.getDate(), separator.getDayKey(), today);
+    }
+}
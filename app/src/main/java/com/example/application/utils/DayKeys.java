@@ -0,0 +1,103 @@
+package com.example.application.utils;
+
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * Claves de día: número de días desde la época en la zona horaria local. Dos
+ * instantes son del mismo día si tienen la misma clave, sin crear Calendar.
+ *
+ * La zona se cachea (TimeZone.getDefault() devuelve una copia en cada llamada) y
+ * también el último día calculado: los mensajes llegan ordenados, así que casi
+ * todas las consultas caen en el mismo día y se resuelven con dos comparaciones.
+ * Al cambiar la zona del sistema hay que llamar a invalidate().
+ *
+ * Java puro, como DateGrouping, para poder medirlo en los benchmarks JMH.
+ */
+public final class DayKeys {
+
+    // Clave para fechas null: nunca coincide con ningún día
+    public static final int NO_DAY = Integer.MIN_VALUE;
+
+    private static final long DAY_MILLIS = 24 * 60 * 60 * 1000L;
+
+    // Un día ya calculado: [start, end) en milisegundos UTC
+    private static final class Day {
+        final TimeZone zone;
+        final int key;
+        final long start;
+        final long end;
+
+        Day(TimeZone zone, int key, long start, long end) {
+            this.zone = zone;
+            this.key = key;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    private static volatile TimeZone zone;
+    private static volatile Day lastDay;
+
+    private DayKeys() {
+    }
+
+    public static int of(Date date) {
+        return date != null ? of(date.getTime()) : NO_DAY;
+    }
+
+    public static int of(long millis) {
+        Day day = lastDay;
+        if (day != null && millis >= day.start && millis < day.end && day.zone == zone) {
+            return day.key;
+        }
+        day = compute(millis);
+        lastDay = day;
+        return day.key;
+    }
+
+    public static int today() {
+        return of(System.currentTimeMillis());
+    }
+
+    public static boolean isSameDay(Date date1, Date date2) {
+        if (date1 == null || date2 == null) {
+            return false;
+        }
+        return of(date1.getTime()) == of(date2.getTime());
+    }
+
+    // Llamar cuando cambie la zona horaria del sistema (ACTION_TIMEZONE_CHANGED)
+    public static void invalidate() {
+        zone = null;
+        lastDay = null;
+        DateFormats.invalidate();
+    }
+
+    static TimeZone zone() {
+        TimeZone current = zone;
+        if (current == null) {
+            current = TimeZone.getDefault();
+            zone = current;
+        }
+        return current;
+    }
+
+    private static Day compute(long millis) {
+        TimeZone tz = zone();
+        int offset = tz.getOffset(millis);
+        int key = (int) Math.floorDiv(millis + offset, DAY_MILLIS);
+
+        // Los límites usan el desfase de cada extremo: los días con cambio de hora
+        // duran 23 o 25 horas
+        long localStart = key * DAY_MILLIS;
+        long localEnd = localStart + DAY_MILLIS;
+        long start = localStart - tz.getOffset(localStart - offset);
+        long end = localEnd - tz.getOffset(localEnd - offset);
+        if (millis < start || millis >= end) {
+            // Instante justo en un cambio de hora: no se cachea un rango dudoso
+            return new Day(tz, key, millis, millis + 1);
+        }
+        return new Day(tz, key, start, end);
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.application.utils;
+
+import android.util.Log;
+
+import com.example.application.BuildConfig;
+
+/**
+ * Logs de depuración que no cuestan nada en release.
+ *
+ * ENABLED es una constante de compilación (BuildConfig.DEBUG): un bloque
+ * {@code if (DebugLog.ENABLED) DebugLog.d(TAG, "..." + valor);} lo elimina javac
+ * entero en release, incluida la concatenación. Si se activa R8, proguard-rules.pro
+ * además quita las llamadas sueltas con -assumenosideeffects.
+ *
+ * Usar siempre la guarda cuando el mensaje se construye con concatenación.
+ */
+public final class DebugLog {
+
+    public static final boolean ENABLED = BuildConfig.DEBUG;
+
+    private DebugLog() {
+    }
+
+    public static void d(String tag, String message) {
+        if (ENABLED) {
+            Log.d(tag, message);
+        }
+    }
+
+    public static void v(String tag, String message) {
+        if (ENABLED) {
+            Log.v(tag, message);
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.example.application.utils;
+
+import android.content.ContentResolver;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
+import android.media.ExifInterface;
+import android.net.Uri;
+import android.os.Build;
+import android.os.SystemClock;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Prepara las imágenes del chat antes de subirlas: reduce la resolución a un
+ * lado máximo, aplica la orientación EXIF y vuelve a codificar (WebP en API 30+,
+ * JPEG en versiones anteriores). Al re-codificar se descartan los metadatos EXIF.
+ *
+ * De cada imagen se generan tres versiones: la completa, una miniatura para las
+ * burbujas del chat y una vista previa diminuta (LQIP) que se guarda dentro del
+ * propio mensaje para pintar algo al instante.
+ *
+ * Las llamadas son bloqueantes: se usan desde la cola de subidas, en segundo plano.
+ */
+public final class ImageCompressor {
+
+    private static final String TAG = "ImageCompressor";
+
+    public static final int MAX_DIMENSION = 1600;
+    public static final int QUALITY = 80;
+    public static final int THUMBNAIL_DIMENSION = 320;
+    public static final int THUMBNAIL_QUALITY = 70;
+    // La vista previa se guarda en el documento del mensaje: debe ocupar muy poco
+    public static final int PREVIEW_DIMENSION = 24;
+    public static final int PREVIEW_QUALITY = 40;
+
+    public static class Result {
+        public final byte[] data;
+        public final String mimeType;
+        public final String extension;
+        public final int width;
+        public final int height;
+        public final byte[] thumbnail;
+        // JPEG diminuto, siempre JPEG para poder decodificarlo en cualquier versión
+        public final byte[] preview;
+
+        Result(byte[] data, String mimeType, String extension, int width, int height,
+               byte[] thumbnail, byte[] preview) {
+            this.data = data;
+            this.mimeType = mimeType;
+            this.extension = extension;
+            this.width = width;
+            this.height = height;
+            this.thumbnail = thumbnail;
+            this.preview = preview;
+        }
+    }
+
+    private ImageCompressor() {
+    }
+
+    /**
+     * Decodifica, orienta, escala y re-codifica la imagen. Bloqueante: no llamar
+     * desde el hilo principal.
+     */
+    public static Result compress(ContentResolver resolver, Uri uri, int maxDimension, int quality)
+            throws IOException {
+        long start = SystemClock.elapsedRealtime();
+
+        // 1. Leer solo las dimensiones
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        try (InputStream input = open(resolver, uri)) {
+            BitmapFactory.decodeStream(input, null, bounds);
+        }
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+            throw new IOException("No se pudo leer la imagen: " + uri);
+        }
+
+        // 2. Decodificar submuestreada, sin cargar la imagen completa en memoria
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = calculateInSampleSize(bounds.outWidth, bounds.outHeight, maxDimension);
+        Bitmap bitmap;
+        try (InputStream input = open(resolver, uri)) {
+            bitmap = BitmapFactory.decodeStream(input, null, options);
+        }
+        if (bitmap == null) {
+            throw new IOException("No se pudo decodificar la imagen: " + uri);
+        }
+
+        // 3. Orientación EXIF y escala final en una sola transformación
+        int orientation;
+        try (InputStream input = open(resolver, uri)) {
+            orientation = new ExifInterface(input).getAttributeInt(
+                    ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL);
+        }
+        Bitmap transformed = transform(bitmap, orientation, maxDimension);
+        if (transformed != bitmap) {
+            bitmap.recycle();
+        }
+
+        // 4. Re-codificar
+        Bitmap.CompressFormat format;
+        String mimeType;
+        String extension;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            format = Bitmap.CompressFormat.WEBP_LOSSY;
+            mimeType = "image/webp";
+            extension = ".webp";
+        } else {
+            format = Bitmap.CompressFormat.JPEG;
+            mimeType = "image/jpeg";
+            extension = ".jpg";
+        }
+        byte[] data = encode(transformed, format, quality);
+        byte[] thumbnail = encode(transformed, THUMBNAIL_DIMENSION, format, THUMBNAIL_QUALITY);
+        byte[] preview = encode(transformed, PREVIEW_DIMENSION, Bitmap.CompressFormat.JPEG, PREVIEW_QUALITY);
+        Result result = new Result(data, mimeType, extension,
+                transformed.getWidth(), transformed.getHeight(), thumbnail, preview);
+        transformed.recycle();
+
+        if (DebugLog.ENABLED) {
+            DebugLog.d(TAG, "Imagen " + bounds.outWidth + "x" + bounds.outHeight + " -> "
+                    + result.width + "x" + result.height + ", " + result.data.length + " bytes (miniatura "
+                    + result.thumbnail.length + ", vista previa " + result.preview.length + ") en "
+                    + (SystemClock.elapsedRealtime() - start) + " ms");
+        }
+        return result;
+    }
+
+    /**
+     * Mayor potencia de 2 que deja el lado más largo todavía por encima de
+     * maxDimension, para que la escala final siempre reduzca. Sin clases de
+     * Android, así se prueba en la JVM (ImageCompressorTest).
+     */
+    public static int calculateInSampleSize(int width, int height, int maxDimension) {
+        int longest = Math.max(width, height);
+        int sampleSize = 1;
+        while (longest / (sampleSize * 2) >= maxDimension) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    private static Bitmap transform(Bitmap bitmap, int orientation, int maxDimension) {
+        Matrix matrix = new Matrix();
+        switch (orientation) {
+            case ExifInterface.ORIENTATION_ROTATE_90:
+                matrix.postRotate(90);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_180:
+                matrix.postRotate(180);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_270:
+                matrix.postRotate(270);
+                break;
+            case ExifInterface.ORIENTATION_FLIP_HORIZONTAL:
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_FLIP_VERTICAL:
+                matrix.postScale(1, -1);
+                break;
+            case ExifInterface.ORIENTATION_TRANSPOSE:
+                matrix.postRotate(90);
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_TRANSVERSE:
+                matrix.postRotate(270);
+                matrix.postScale(-1, 1);
+                break;
+            default:
+                break;
+        }
+
+        int longest = Math.max(bitmap.getWidth(), bitmap.getHeight());
+        if (longest > maxDimension) {
+            float scale = (float) maxDimension / longest;
+            matrix.postScale(scale, scale);
+        }
+
+        if (matrix.isIdentity()) {
+            return bitmap;
+        }
+        return Bitmap.createBitmap(bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight(), matrix, true);
+    }
+
+    private static byte[] encode(Bitmap bitmap, Bitmap.CompressFormat format, int quality) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        bitmap.compress(format, quality, output);
+        return output.toByteArray();
+    }
+
+    // Codifica una copia reducida a maxDimension de lado mayor
+    private static byte[] encode(Bitmap bitmap, int maxDimension, Bitmap.CompressFormat format, int quality) {
+        int longest = Math.max(bitmap.getWidth(), bitmap.getHeight());
+        if (longest <= maxDimension) {
+            return encode(bitmap, format, quality);
+        }
+        float scale = (float) maxDimension / longest;
+        Bitmap scaled = Bitmap.createScaledBitmap(bitmap,
+                Math.max(1, Math.round(bitmap.getWidth() * scale)),
+                Math.max(1, Math.round(bitmap.getHeight() * scale)),
+                true);
+        byte[] data = encode(scaled, format, quality);
+        scaled.recycle();
+        return data;
+    }
+
+    private static InputStream open(ContentResolver resolver, Uri uri) throws IOException {
+        InputStream input = resolver.openInputStream(uri);
+        if (input == null) {
+            throw new IOException("No se pudo abrir la imagen: " + uri);
+        }
+        return input;
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.application.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tick compartido al empezar cada minuto, en el hilo principal, para refrescar los
+ * textos de tiempo relativo ("5 min") sin que cada pantalla tenga su propio timer.
+ * Solo está programado mientras hay algún listener.
+ */
+public class MinuteTicker {
+
+    private static final long MINUTE = 60_000L;
+    // Margen para dar por empezado un minuto al que le faltan unos ms
+    private static final long EARLY_TOLERANCE = 1_000L;
+
+    private static MinuteTicker instance;
+
+    public interface Listener {
+        void onMinuteTick(long now);
+    }
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final List<Listener> listeners = new ArrayList<>();
+    private final Runnable tick = this::tick;
+
+    private MinuteTicker() {
+    }
+
+    public static synchronized MinuteTicker getInstance() {
+        if (instance == null) {
+            instance = new MinuteTicker();
+        }
+        return instance;
+    }
+
+    public void addListener(Listener listener) {
+        if (listeners.contains(listener)) {
+            return;
+        }
+        if (listeners.isEmpty()) {
+            scheduleNext();
+        }
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+        if (listeners.isEmpty()) {
+            handler.removeCallbacks(tick);
+        }
+    }
+
+    // Primer tick en el próximo minuto exacto del reloj de pared (60_000 - now % 60_000)
+    private void scheduleNext() {
+        long now = System.currentTimeMillis();
+        handler.postDelayed(tick, nextMinute(now) - now);
+    }
+
+    private void tick() {
+        long now = System.currentTimeMillis();
+        // postDelayed cuenta con uptimeMillis, no con la hora de pared: si el tick llega
+        // unos ms antes del minuto se avisa con la hora del minuto, para que los textos
+        // que caducan justo entonces cambien, y el siguiente no se repite en 0 ms
+        long minute = (now + EARLY_TOLERANCE) / MINUTE * MINUTE;
+        long tickTime = Math.max(now, minute);
+        // Copia: un listener puede quitarse durante el aviso
+        for (Listener listener : new ArrayList<>(listeners)) {
+            listener.onMinuteTick(tickTime);
+        }
+        if (!listeners.isEmpty()) {
+            // Se vuelve a alinear en cada tick: los retrasos no se acumulan. Si un listener
+            // se añadió durante el aviso ya hay un tick programado: no se duplica
+            handler.removeCallbacks(tick);
+            handler.postDelayed(tick, nextMinute(tickTime) - now);
+        }
+    }
+
+    private static long nextMinute(long time) {
+        return time - time % MINUTE + MINUTE;
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.application.adapters;
+
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListUpdateCallback;
+
+import com.example.application.models.Chat;
+import com.example.application.models.ChatRow;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Qué despacha el diff de la lista de chats: un cambio solo del contador de no
+ * leídos debe llegar como PAYLOAD_UNREAD y no como un rebind completo.
+ */
+public class ChatDiffCallbackTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+    private static final Date LAST_MESSAGE_TIME = new Date(NOW - 5 * 60_000L);
+
+    @Test
+    public void unreadOnlyChange_dispatchesUnreadPayload() {
+        List<ChatRow> before = rows(chat("a", "Hola", 0), chat("b", "Qué tal", 0));
+        List<ChatRow> after = rows(chat("a", "Hola", 3), chat("b", "Qué tal", 0));
+
+        RecordingCallback updates = diff(before, after);
+
+        assertEquals(Arrays.asList("changed 0 " + ChatDiffCallback.PAYLOAD_UNREAD), updates.events);
+    }
+
+    @Test
+    public void unreadOnlyChange_neverFullRebind() {
+        List<ChatRow> before = new ArrayList<>();
+        List<ChatRow> after = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            before.add(row(chat("chat" + i, "Mensaje " + i, i)));
+            after.add(row(chat("chat" + i, "Mensaje " + i, i % 2 == 0 ? i + 1 : i)));
+        }
+
+        RecordingCallback updates = diff(before, after);
+
+        assertEquals(10, updates.events.size());
+        for (String event : updates.events) {
+            assertTrue(event, event.endsWith(" " + ChatDiffCallback.PAYLOAD_UNREAD));
+        }
+    }
+
+    @Test
+    public void newLastMessage_rebindsWholeRow() {
+        List<ChatRow> before = rows(chat("a", "Hola", 0));
+        List<ChatRow> after = rows(chat("a", "Adiós", 1));
+
+        RecordingCallback updates = diff(before, after);
+
+        assertEquals(Arrays.asList("changed 0 null"), updates.events);
+    }
+
+    @Test
+    public void timeLabelOnlyChange_dispatchesTimePayload() {
+        ChatRow old = row(chat("a", "Hola", 0));
+        // El mismo chat un minuto después: "5 min" pasa a "6 min"
+        ChatRow later = new ChatRow(chat("a", "Hola", 0), "A", 0, NOW + 60_000L);
+
+        RecordingCallback updates = diff(rows(old), rows(later));
+
+        assertEquals(Arrays.asList("changed 0 " + ChatDiffCallback.PAYLOAD_TIME), updates.events);
+    }
+
+    @Test
+    public void minuteTick_copiesRowWithoutTouchingTheShownOne() {
+        ChatRow shown = row(chat("a", "Hola", 0));
+
+        ChatRow ticked = shown.atTime(NOW + 60_000L);
+
+        // La fila que tiene el adapter no cambia: el tick envía una copia
+        assertNotSame(shown, ticked);
+        assertEquals("5 min", shown.getTimeLabel());
+        assertEquals("6 min", ticked.getTimeLabel());
+        RecordingCallback updates = diff(rows(shown), rows(ticked));
+        assertEquals(Arrays.asList("changed 0 " + ChatDiffCallback.PAYLOAD_TIME), updates.events);
+    }
+
+    @Test
+    public void minuteTick_beforeExpiry_keepsSameRow() {
+        ChatRow shown = row(chat("a", "Hola", 0));
+
+        assertSame(shown, shown.atTime(NOW + 30_000L));
+    }
+
+    @Test
+    public void unchangedList_dispatchesNothing() {
+        RecordingCallback updates = diff(rows(chat("a", "Hola", 2)), rows(chat("a", "Hola", 2)));
+
+        assertTrue(updates.events.isEmpty());
+    }
+
+    private static RecordingCallback diff(List<ChatRow> oldRows, List<ChatRow> newRows) {
+        ChatDiffCallback callback = new ChatDiffCallback();
+        DiffUtil.DiffResult result = DiffUtil.calculateDiff(new DiffUtil.Callback() {
+            @Override
+            public int getOldListSize() {
+                return oldRows.size();
+            }
+
+            @Override
+            public int getNewListSize() {
+                return newRows.size();
+            }
+
+            @Override
+            public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+                return callback.areItemsTheSame(oldRows.get(oldItemPosition), newRows.get(newItemPosition));
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+                return callback.areContentsTheSame(oldRows.get(oldItemPosition), newRows.get(newItemPosition));
+            }
+
+            @Override
+            public Object getChangePayload(int oldItemPosition, int newItemPosition) {
+                return callback.getChangePayload(oldRows.get(oldItemPosition), newRows.get(newItemPosition));
+            }
+        });
+        RecordingCallback updates = new RecordingCallback();
+        result.dispatchUpdatesTo(updates);
+        return updates;
+    }
+
+    private static Chat chat(String chatId, String lastMessage, int unreadCount) {
+        Chat chat = new Chat();
+        chat.setChatId(chatId);
+        chat.setOtherUserId("user-" + chatId);
+        chat.setOtherUserName("Usuario " + chatId);
+        chat.setLastMessage(lastMessage);
+        chat.setLastMessageTime(LAST_MESSAGE_TIME);
+        chat.setUnreadCount(unreadCount);
+        return chat;
+    }
+
+    private static ChatRow row(Chat chat) {
+        return new ChatRow(chat, "A", 0, NOW);
+    }
+
+    private static List<ChatRow> rows(Chat... chats) {
+        List<ChatRow> rows = new ArrayList<>();
+        for (Chat chat : chats) {
+            rows.add(row(chat));
+        }
+        return rows;
+    }
+
+    private static List<ChatRow> rows(ChatRow... rows) {
+        return new ArrayList<>(Arrays.asList(rows));
+    }
+
+    // Anota cada actualización como texto para comparar la secuencia completa
+    private static class RecordingCallback implements ListUpdateCallback {
+        final List<String> events = new ArrayList<>();
+
+        @Override
+        public void onInserted(int position, int count) {
+            events.add("inserted " + position + " " + count);
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            events.add("removed " + position + " " + count);
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            events.add("moved " + fromPosition + " " + toPosition);
+        }
+
+        @Override
+        public void onChanged(int position, int count, @Nullable Object payload) {
+            for (int i = 0; i < count; i++) {
+                events.add("changed " + (position + i) + " " + payload);
+            }
+        }
+    }
+}
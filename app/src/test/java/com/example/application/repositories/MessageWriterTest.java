@@ -0,0 +1,88 @@
+package com.example.application.repositories;
+
+import com.google.firebase.firestore.FieldValue;
+
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Resumen del chat que MessageWriter escribe en el mismo batch que el mensaje.
+ */
+public class MessageWriterTest {
+
+    private static final String SENDER = "alice";
+    private static final String RECIPIENT = "bob";
+
+    @Test
+    public void chatUpdate_incrementsRecipientUnreadCountByOne() {
+        Map<String, Object> update = MessageWriter.chatUpdate(message(), "Hola", SENDER, RECIPIENT);
+
+        Object unread = update.get("unreadCount." + RECIPIENT);
+        // FieldValue no implementa equals: se comprueba que sea un incremento de +1
+        assertEquals(FieldValue.increment(1).getClass(), unread.getClass());
+        assertEquals(1L, incrementOperand(unread).longValue());
+    }
+
+    @Test
+    public void chatUpdate_onlyTouchesRecipientCounter() {
+        Map<String, Object> update = MessageWriter.chatUpdate(message(), "Hola", SENDER, RECIPIENT);
+
+        // Ruta con punto: solo cambia la clave del destinatario. Un "unreadCount"
+        // entero reemplazaría el mapa y pondría a cero el contador del remitente
+        for (String key : update.keySet()) {
+            if (key.startsWith("unreadCount")) {
+                assertEquals("unreadCount." + RECIPIENT, key);
+            }
+        }
+        assertFalse(update.containsKey("unreadCount"));
+        // El remitente no suma mensajes no leídos a su propio contador
+        assertFalse(update.containsKey("unreadCount." + SENDER));
+    }
+
+    @Test
+    public void chatUpdate_copiesLastMessageFields() {
+        Map<String, Object> message = message();
+        Map<String, Object> update = MessageWriter.chatUpdate(message, "📷 Imagen", SENDER, RECIPIENT);
+
+        assertEquals("📷 Imagen", update.get("lastMessage"));
+        assertEquals(SENDER, update.get("lastMessageSenderId"));
+        // La hora del resumen es el mismo serverTimestamp que la del mensaje
+        assertSame(message.get("timestamp"), update.get("lastMessageTime"));
+        assertEquals(4, update.size());
+    }
+
+    @Test
+    public void chatUpdate_withoutRecipient_skipsUnreadCount() {
+        Map<String, Object> update = MessageWriter.chatUpdate(message(), "Hola", SENDER, null);
+
+        assertNull(update.get("unreadCount.null"));
+        assertEquals(3, update.size());
+    }
+
+    // NumericIncrementFieldValue es interna del SDK: su operando se lee por reflexión
+    private static Number incrementOperand(Object increment) {
+        try {
+            Method getter = increment.getClass().getDeclaredMethod("getOperand");
+            getter.setAccessible(true);
+            return (Number) getter.invoke(increment);
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError("No es un incremento de Firestore: " + increment, e);
+        }
+    }
+
+    private static Map<String, Object> message() {
+        Map<String, Object> message = new HashMap<>();
+        message.put("text", "Hola");
+        message.put("senderId", SENDER);
+        message.put("timestamp", FieldValue.serverTimestamp());
+        return message;
+    }
+}
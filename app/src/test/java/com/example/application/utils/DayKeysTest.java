@@ -0,0 +1,154 @@
+package com.example.application.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Claves de día en los bordes: medianoche y días de 23 o 25 horas por el cambio
+ * de hora. Cada caso se contrasta con Calendar en la misma zona.
+ */
+public class DayKeysTest {
+
+    private TimeZone originalZone;
+
+    @Before
+    public void setUp() {
+        originalZone = TimeZone.getDefault();
+    }
+
+    @After
+    public void tearDown() {
+        TimeZone.setDefault(originalZone);
+        DayKeys.invalidate();
+    }
+
+    @Test
+    public void midnight_startsNewDay() {
+        useZone("Europe/Madrid");
+        long lastMillis = at(2024, Calendar.JANUARY, 15, 23, 59, 59) + 999;
+        long midnight = at(2024, Calendar.JANUARY, 16, 0, 0, 0);
+
+        assertEquals(DayKeys.of(lastMillis) + 1, DayKeys.of(midnight));
+        // Y al revés, con el día siguiente ya en la caché
+        assertEquals(DayKeys.of(midnight) - 1, DayKeys.of(lastMillis));
+    }
+
+    @Test
+    public void yearBoundary_isConsecutive() {
+        useZone("America/New_York");
+        long newYearsEve = at(2023, Calendar.DECEMBER, 31, 12, 0, 0);
+        long newYearsDay = at(2024, Calendar.JANUARY, 1, 0, 0, 0);
+
+        assertEquals(DayKeys.of(newYearsEve) + 1, DayKeys.of(newYearsDay));
+    }
+
+    @Test
+    public void springForward_dayOf23Hours() {
+        // 31/03/2024 en Madrid: a las 02:00 pasan a ser las 03:00
+        useZone("Europe/Madrid");
+        assertWholeDay(2024, Calendar.MARCH, 31);
+    }
+
+    @Test
+    public void fallBack_dayOf25Hours() {
+        // 27/10/2024 en Madrid: las 02:00-03:00 se repiten
+        useZone("Europe/Madrid");
+        assertWholeDay(2024, Calendar.OCTOBER, 27);
+    }
+
+    @Test
+    public void dstBoundaries_newYork() {
+        useZone("America/New_York");
+        assertWholeDay(2024, Calendar.MARCH, 10);
+        assertWholeDay(2024, Calendar.NOVEMBER, 3);
+    }
+
+    @Test
+    public void halfHourDst_lordHowe() {
+        // Lord Howe adelanta y atrasa solo media hora
+        useZone("Australia/Lord_Howe");
+        assertWholeDay(2024, Calendar.APRIL, 7);
+        assertWholeDay(2024, Calendar.OCTOBER, 6);
+    }
+
+    @Test
+    public void everyHalfHourOfYear_matchesCalendar() {
+        useZone("Europe/Madrid");
+        long start = at(2024, Calendar.JANUARY, 1, 0, 0, 0);
+        long end = at(2025, Calendar.JANUARY, 1, 0, 0, 0);
+        long previous = start;
+        for (long millis = start; millis < end; millis += 30 * 60 * 1000L) {
+            assertEquals("Instante " + new Date(millis),
+                    sameCalendarDay(previous, millis), DayKeys.of(previous) == DayKeys.of(millis));
+            previous = millis;
+        }
+    }
+
+    @Test
+    public void invalidate_appliesNewZone() {
+        useZone("UTC");
+        long instant = at(2024, Calendar.JUNE, 1, 23, 0, 0);
+        int utcKey = DayKeys.of(instant);
+
+        // Las 23:00 UTC ya son el día siguiente en Kolkata (UTC+5:30)
+        useZone("Asia/Kolkata");
+        assertEquals(utcKey + 1, DayKeys.of(instant));
+    }
+
+    @Test
+    public void nullDates() {
+        assertEquals(DayKeys.NO_DAY, DayKeys.of((Date) null));
+        assertFalse(DayKeys.isSameDay(null, new Date()));
+        assertFalse(DayKeys.isSameDay(new Date(), null));
+    }
+
+    // Cada media hora del día da la misma clave, y los bordes separan días
+    private static void assertWholeDay(int year, int month, int day) {
+        long dayStart = at(year, month, day, 0, 0, 0);
+        Calendar next = Calendar.getInstance();
+        next.setTimeInMillis(dayStart);
+        next.add(Calendar.DAY_OF_MONTH, 1);
+        long dayEnd = next.getTimeInMillis();
+
+        int key = DayKeys.of(dayStart);
+        for (long millis = dayStart; millis < dayEnd; millis += 15 * 60 * 1000L) {
+            assertEquals("Instante " + new Date(millis), key, DayKeys.of(millis));
+            assertTrue(sameCalendarDay(dayStart, millis));
+        }
+        assertEquals(key, DayKeys.of(dayEnd - 1));
+        assertEquals(key + 1, DayKeys.of(dayEnd));
+        assertEquals(key - 1, DayKeys.of(dayStart - 1));
+        assertNotEquals(DayKeys.of(dayStart - 1), DayKeys.of(dayStart));
+    }
+
+    private static void useZone(String id) {
+        TimeZone.setDefault(TimeZone.getTimeZone(id));
+        DayKeys.invalidate();
+    }
+
+    private static long at(int year, int month, int day, int hour, int minute, int second) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(year, month, day, hour, minute, second);
+        return calendar.getTimeInMillis();
+    }
+
+    private static boolean sameCalendarDay(long a, long b) {
+        Calendar first = Calendar.getInstance();
+        first.setTimeInMillis(a);
+        Calendar second = Calendar.getInstance();
+        second.setTimeInMillis(b);
+        return first.get(Calendar.YEAR) == second.get(Calendar.YEAR)
+                && first.get(Calendar.DAY_OF_YEAR) == second.get(Calendar.DAY_OF_YEAR);
+    }
+}
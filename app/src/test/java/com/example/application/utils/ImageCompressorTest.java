@@ -0,0 +1,67 @@
+package com.example.application.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Submuestreo y parámetros de calidad de ImageCompressor. calculateInSampleSize
+ * es Java puro: se prueba en la JVM sin decodificar ninguna imagen.
+ */
+public class ImageCompressorTest {
+
+    private static final int MAX = ImageCompressor.MAX_DIMENSION;
+
+    @Test
+    public void smallImage_isNotSubsampled() {
+        assertEquals(1, ImageCompressor.calculateInSampleSize(800, 600, MAX));
+        assertEquals(1, ImageCompressor.calculateInSampleSize(MAX, MAX, MAX));
+    }
+
+    @Test
+    public void justUnderTwiceMax_isNotSubsampled() {
+        // Con 2 el lado mayor quedaría por debajo del máximo
+        assertEquals(1, ImageCompressor.calculateInSampleSize(2 * MAX - 1, 100, MAX));
+    }
+
+    @Test
+    public void twiceMax_halves() {
+        assertEquals(2, ImageCompressor.calculateInSampleSize(2 * MAX, 100, MAX));
+    }
+
+    @Test
+    public void usesLongestSide() {
+        // Foto vertical de 12 MP (3000x4000): 4000 / 2 = 2000 >= 1600, 4000 / 4 < 1600
+        assertEquals(2, ImageCompressor.calculateInSampleSize(3000, 4000, MAX));
+        assertEquals(2, ImageCompressor.calculateInSampleSize(4000, 3000, MAX));
+    }
+
+    @Test
+    public void largeImages_powerOfTwo() {
+        assertEquals(4, ImageCompressor.calculateInSampleSize(8000, 6000, MAX));
+        assertEquals(8, ImageCompressor.calculateInSampleSize(12800, 100, MAX));
+    }
+
+    @Test
+    public void sampledImage_neverGoesBelowMax() {
+        // La escala final solo reduce: tras submuestrear, el lado mayor sigue en [max, 2 * max)
+        for (int longest = MAX; longest <= 20_000; longest += 37) {
+            int sampleSize = ImageCompressor.calculateInSampleSize(longest, longest / 2, MAX);
+            assertEquals("Potencia de 2 para " + longest, 0, sampleSize & (sampleSize - 1));
+            int sampled = longest / sampleSize;
+            assertTrue("Lado " + longest + " -> " + sampled, sampled >= MAX);
+            assertTrue("Lado " + longest + " -> " + sampled, sampled < 2 * MAX);
+        }
+    }
+
+    @Test
+    public void versionsShrinkInSizeAndQuality() {
+        assertTrue(ImageCompressor.PREVIEW_DIMENSION < ImageCompressor.THUMBNAIL_DIMENSION);
+        assertTrue(ImageCompressor.THUMBNAIL_DIMENSION < ImageCompressor.MAX_DIMENSION);
+        assertTrue(ImageCompressor.PREVIEW_QUALITY < ImageCompressor.THUMBNAIL_QUALITY);
+        assertTrue(ImageCompressor.THUMBNAIL_QUALITY <= ImageCompressor.QUALITY);
+        assertTrue(ImageCompressor.QUALITY <= 100);
+        assertTrue(ImageCompressor.PREVIEW_QUALITY > 0);
+    }
+}
@@ -0,0 +1,42 @@
+plugins {
+    id("com.android.test")
+}
+
+// Microbenchmarks en dispositivo de los caminos calientes de adapters y modelos.
+// Se ejecutan contra la variante "benchmark" de :app (release, no depurable):
+//   ./gradlew :benchmark:connectedBenchmarkAndroidTest
+android {
+    namespace = "com.example.application.benchmark"
+    compileSdk = 34
+
+    defaultConfig {
+        minSdk = 24
+        targetSdk = 34
+
+        testInstrumentationRunner = "androidx.benchmark.junit4.AndroidBenchmarkRunner"
+        // En emulador los resultados no son fiables, pero se permite para comprobar que compilan
+        testInstrumentationRunnerArguments["androidx.benchmark.suppressErrors"] = "EMULATOR"
+    }
+
+    buildTypes {
+        create("benchmark") {
+            isDebuggable = true
+            signingConfig = signingConfigs.getByName("debug")
+            matchingFallbacks += listOf("release")
+        }
+    }
+
+    targetProjectPath = ":app"
+    experimentalProperties["android.experimental.self-instrumenting"] = false
+
+    compileOptions {
+        sourceCompatibility = JavaVersion.VERSION_11
+        targetCompatibility = JavaVersion.VERSION_11
+    }
+}
+
+dependencies {
+    implementation("androidx.benchmark:benchmark-junit4:1.2.4")
+    implementation("androidx.test.ext:junit:1.1.5")
+    implementation("androidx.test:runner:1.5.2")
+}
@@ -0,0 +1,41 @@
+plugins {
+    `java-library`
+    id("me.champeau.jmh")
+}
+
+// Benchmarks JMH en la JVM para las partes de la app que son Java puro.
+// Se compilan directamente las fuentes de :app que no dependen de Android:
+//   ./gradlew :benchmark:jmh:jmh
+sourceSets {
+    main {
+        java {
+            srcDir("../../app/src/main/java")
+            include(
+                "com/example/application/models/ChatItem.java",
+                "com/example/application/models/Message.java",
+                "com/example/application/utils/Avatars.java",
+                "com/example/application/utils/DateFormats.java",
+                "com/example/application/utils/DateGrouping.java",
+                "com/example/application/utils/DayKeys.java"
+            )
+        }
+    }
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+// Las fuentes tienen comentarios en español
+tasks.withType<JavaCompile>().configureEach {
+    options.encoding = "UTF-8"
+}
+
+jmh {
+    warmupIterations.set(3)
+    iterations.set(5)
+    fork.set(1)
+    // Bytes y objetos asignados por operación (gc.alloc.rate.norm)
+    profilers.add("gc")
+}
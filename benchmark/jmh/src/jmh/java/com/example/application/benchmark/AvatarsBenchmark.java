@@ -0,0 +1,31 @@
+package com.example.application.benchmark;
+
+import com.example.application.utils.Avatars;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Iniciales del avatar en la JVM. El color depende de android.graphics.Color y se
+ * mide en el módulo :benchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AvatarsBenchmark {
+
+    @Param({"Lucía", "María José Pérez"})
+    public String name;
+
+    @Benchmark
+    public String getInitials() {
+        return Avatars.getInitials(name);
+    }
+}
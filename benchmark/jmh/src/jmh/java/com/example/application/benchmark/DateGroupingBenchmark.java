@@ -0,0 +1,127 @@
+package com.example.application.benchmark;
+
+import com.example.application.models.ChatItem;
+import com.example.application.models.Message;
+import com.example.application.utils.DateFormats;
+import com.example.application.utils.DateGrouping;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Agrupación por día de una conversación (lo que hace MessageAdapter.updateMessages()
+ * antes de notificar), medida en la JVM. Los métodos *Calendar reproducen la versión
+ * anterior con Calendar y SimpleDateFormat por llamada, como referencia; con el
+ * perfilador gc se comparan los bytes asignados por operación.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DateGroupingBenchmark {
+
+    private static final long MINUTE = 60_000L;
+
+    @Param({"100", "1000", "10000"})
+    public int size;
+
+    private List<Message> messages;
+    private Date date;
+
+    @Setup
+    public void setUp() {
+        messages = new ArrayList<>(size);
+        long start = System.currentTimeMillis() - size * 17 * MINUTE;
+        for (int i = 0; i < size; i++) {
+            Message message = new Message();
+            message.setMessageId("msg_" + i);
+            message.setSenderId(i % 3 == 0 ? "user_other" : "user_me");
+            message.setText("Mensaje de prueba número " + i);
+            message.setType("text");
+            message.setTimestamp(new Date(start + i * 17 * MINUTE));
+            messages.add(message);
+        }
+        date = messages.get(0).getTimestamp();
+    }
+
+    @Benchmark
+    public List<ChatItem> buildItems() {
+        return DateGrouping.buildItems(messages, "user_me");
+    }
+
+    @Benchmark
+    public List<ChatItem> buildItemsCalendar(Blackhole blackhole) {
+        List<ChatItem> items = new ArrayList<>(messages.size() + 8);
+        for (int i = 0; i < messages.size(); i++) {
+            Message currentMessage = messages.get(i);
+            if (i == 0 || !isSameDayCalendar(messages.get(i - 1).getTimestamp(), currentMessage.getTimestamp())) {
+                // La versión anterior formaba el texto del separador al agruparlo
+                blackhole.consume(getDateTextCalendar(currentMessage.getTimestamp()));
+                items.add(new ChatItem(currentMessage.getTimestamp()));
+            }
+            items.add(new ChatItem(currentMessage, "user_me"));
+        }
+        return items;
+    }
+
+    @Benchmark
+    public String getDateText() {
+        return DateGrouping.getDateText(date);
+    }
+
+    @Benchmark
+    public String getDateTextCalendar() {
+        return getDateTextCalendar(date);
+    }
+
+    @Benchmark
+    public String formatTime() {
+        return DateFormats.formatTime(date);
+    }
+
+    @Benchmark
+    public String formatTimeNewFormatter() {
+        return new SimpleDateFormat("hh:mm a", Locale.getDefault()).format(date);
+    }
+
+    private static boolean isSameDayCalendar(Date date1, Date date2) {
+        if (date1 == null || date2 == null) {
+            return false;
+        }
+        Calendar cal1 = Calendar.getInstance();
+        Calendar cal2 = Calendar.getInstance();
+        cal1.setTime(date1);
+        cal2.setTime(date2);
+        return cal1.get(Calendar.YEAR) == cal2.get(Calendar.YEAR) &&
+               cal1.get(Calendar.DAY_OF_YEAR) == cal2.get(Calendar.DAY_OF_YEAR);
+    }
+
+    private static String getDateTextCalendar(Date date) {
+        if (date == null) {
+            return "";
+        }
+        Calendar today = Calendar.getInstance();
+        Calendar yesterday = Calendar.getInstance();
+        yesterday.add(Calendar.DAY_OF_YEAR, -1);
+        if (isSameDayCalendar(date, today.getTime())) {
+            return "Hoy";
+        } else if (isSameDayCalendar(date, yesterday.getTime())) {
+            return "Ayer";
+        }
+        return new SimpleDateFormat("dd/MM/yyyy", Locale.getDefault()).format(date);
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.application.benchmark;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+
+import com.example.application.adapters.ChatAdapter;
+import com.example.application.utils.Avatars;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+/**
+ * Iniciales y color del avatar, que se calculan en cada bind de la lista de chats.
+ */
+public class AvatarBenchmark {
+
+    private static final String NAME = "María José Pérez";
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    @Test
+    public void getInitials() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            Avatars.getInitials(NAME);
+        }
+    }
+
+    @Test
+    public void generateColorFromName() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            ChatAdapter.generateColorFromName(NAME);
+        }
+    }
+}
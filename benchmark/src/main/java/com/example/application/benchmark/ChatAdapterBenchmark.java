@@ -0,0 +1,131 @@
+package com.example.application.benchmark;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.recyclerview.widget.DiffUtil;
+
+import com.example.application.adapters.ChatAdapter;
+import com.example.application.models.Chat;
+import com.example.application.models.ChatRow;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Diff de la lista de chats tal y como lo calcula el AsyncListDiffer de
+ * ChatAdapter.updateChats(), con el mismo DiffUtil.ItemCallback.
+ */
+public class ChatAdapterBenchmark {
+
+    private static final int CHAT_COUNT = 200;
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    // Caso habitual: llega un mensaje y su chat sube al principio
+    @Test
+    public void diffNewMessageMovesChatToTop() {
+        List<Chat> oldChats = Fixtures.chats(CHAT_COUNT);
+        List<Chat> newChats = copy(oldChats);
+        Chat moved = newChats.remove(CHAT_COUNT / 2);
+        moved.setLastMessage("Nuevo mensaje");
+        moved.setLastMessageTime(new Date());
+        newChats.add(0, moved);
+
+        measureDiff(oldChats, newChats);
+    }
+
+    // Solo cambia el badge de no leídos (payload parcial)
+    @Test
+    public void diffUnreadCountChanged() {
+        List<Chat> oldChats = Fixtures.chats(CHAT_COUNT);
+        List<Chat> newChats = copy(oldChats);
+        for (int i = 0; i < 10; i++) {
+            Chat chat = newChats.get(i);
+            chat.setUnreadCount(chat.getUnreadCount() + 1);
+        }
+
+        measureDiff(oldChats, newChats);
+    }
+
+    @Test
+    public void diffNoChanges() {
+        List<Chat> oldChats = Fixtures.chats(CHAT_COUNT);
+        measureDiff(oldChats, copy(oldChats));
+    }
+
+    // Lo que hace updateChats() en el hilo principal antes de enviar la lista al diff
+    @Test
+    public void buildRows() {
+        List<Chat> chats = Fixtures.chats(CHAT_COUNT);
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            rows(chats);
+        }
+    }
+
+    private void measureDiff(List<Chat> oldChats, List<Chat> newChats) {
+        DiffUtil.Callback callback = new ItemCallbackAdapter(rows(oldChats), rows(newChats));
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            DiffUtil.calculateDiff(callback);
+        }
+    }
+
+    // El adapter recibe copias nuevas de cada chat en cada snapshot
+    private static List<Chat> copy(List<Chat> chats) {
+        List<Chat> copy = new ArrayList<>(chats.size());
+        for (Chat chat : chats) {
+            copy.add(new Chat(chat));
+        }
+        return copy;
+    }
+
+    private static List<ChatRow> rows(List<Chat> chats) {
+        long now = System.currentTimeMillis();
+        List<ChatRow> rows = new ArrayList<>(chats.size());
+        for (Chat chat : chats) {
+            rows.add(ChatAdapter.toRow(chat, now));
+        }
+        return rows;
+    }
+
+    private static class ItemCallbackAdapter extends DiffUtil.Callback {
+        private final List<ChatRow> oldList;
+        private final List<ChatRow> newList;
+
+        ItemCallbackAdapter(List<ChatRow> oldList, List<ChatRow> newList) {
+            this.oldList = oldList;
+            this.newList = newList;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return oldList.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return newList.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return ChatAdapter.DIFF_CALLBACK.areItemsTheSame(oldList.get(oldItemPosition), newList.get(newItemPosition));
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            return ChatAdapter.DIFF_CALLBACK.areContentsTheSame(oldList.get(oldItemPosition), newList.get(newItemPosition));
+        }
+
+        @Override
+        public Object getChangePayload(int oldItemPosition, int newItemPosition) {
+            return ChatAdapter.DIFF_CALLBACK.getChangePayload(oldList.get(oldItemPosition), newList.get(newItemPosition));
+        }
+    }
+}
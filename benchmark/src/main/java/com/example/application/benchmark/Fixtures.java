@@ -0,0 +1,66 @@
+package com.example.application.benchmark;
+
+import com.example.application.models.Chat;
+import com.example.application.models.Message;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Datos sintéticos para los benchmarks: conversaciones y listas de chats con una
+ * forma parecida a la real (varios mensajes por día, dos participantes).
+ */
+final class Fixtures {
+
+    static final String ME = "user_me";
+    static final String OTHER = "user_other";
+
+    private static final long MINUTE = 60_000L;
+    private static final String[] NAMES = {
+            "Ana García", "Luis", "María José Pérez", "Carlos Ruiz", "Lucía", "Pedro Sánchez López"
+    };
+
+    private Fixtures() {
+    }
+
+    // Mensajes ordenados por hora, uno cada 17 minutos hacia atrás desde ahora
+    static List<Message> messages(int count) {
+        List<Message> messages = new ArrayList<>(count);
+        long start = System.currentTimeMillis() - count * 17 * MINUTE;
+        for (int i = 0; i < count; i++) {
+            Message message = new Message();
+            message.setMessageId("msg_" + i);
+            message.setSenderId(i % 3 == 0 ? OTHER : ME);
+            message.setSenderName(i % 3 == 0 ? "Otro" : "Yo");
+            message.setText("Mensaje de prueba número " + i);
+            message.setType(i % 20 == 0 ? "image" : "text");
+            message.setTimestamp(new Date(start + i * 17 * MINUTE));
+            messages.add(message);
+        }
+        return messages;
+    }
+
+    static List<Chat> chats(int count) {
+        List<Chat> chats = new ArrayList<>(count);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < count; i++) {
+            Chat chat = new Chat();
+            chat.setChatId("chat_" + i);
+            chat.setParticipants(Arrays.asList(ME, "user_" + i));
+            chat.setOtherUserId("user_" + i);
+            chat.setOtherUserName(name(i));
+            chat.setLastMessage("Último mensaje " + i);
+            chat.setLastMessageSenderId(i % 2 == 0 ? ME : "user_" + i);
+            chat.setLastMessageTime(new Date(now - i * 5 * MINUTE));
+            chat.setUnreadCount(i % 4);
+            chats.add(chat);
+        }
+        return chats;
+    }
+
+    static String name(int i) {
+        return NAMES[i % NAMES.length] + " " + i;
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.application.benchmark;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.RequestManager;
+import com.example.application.adapters.MessageAdapter;
+import com.example.application.models.Message;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Carga inicial de una conversación: updateMessages() agrupa por día e intercala
+ * los separadores de fecha. AndroidX Benchmark informa también de allocationCount,
+ * que es la métrica a vigilar en este camino.
+ */
+@RunWith(Parameterized.class)
+public class MessageAdapterBenchmark {
+
+    @Parameterized.Parameters(name = "mensajes={0}")
+    public static Collection<Object[]> sizes() {
+        return Arrays.asList(new Object[][]{{100}, {1_000}, {10_000}});
+    }
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    private final int size;
+    // Sin actividad: no se enlazan filas, así que basta con el Glide de la aplicación
+    private final RequestManager glide =
+            Glide.with(InstrumentationRegistry.getInstrumentation().getTargetContext());
+
+    public MessageAdapterBenchmark(int size) {
+        this.size = size;
+    }
+
+    @Test
+    public void updateMessages() {
+        List<Message> messages = Fixtures.messages(size);
+        MessageAdapter adapter = new MessageAdapter(Fixtures.ME, glide);
+
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            adapter.updateMessages(messages);
+        }
+    }
+
+    // RecyclerView lo llama varias veces por fila al hacer scroll y al cambiar datos
+    @Test
+    public void getItemViewType() {
+        MessageAdapter adapter = new MessageAdapter(Fixtures.ME, glide);
+        adapter.updateMessages(Fixtures.messages(size));
+        int count = adapter.getItemCount();
+
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            for (int position = 0; position < count; position++) {
+                adapter.getItemViewType(position);
+            }
+        }
+    }
+}
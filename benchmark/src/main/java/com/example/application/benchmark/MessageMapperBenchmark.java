@@ -0,0 +1,53 @@
+package com.example.application.benchmark;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+
+import com.example.application.data.StoredMessage;
+import com.example.application.models.Message;
+import com.example.application.repositories.MessageMapper;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Conversión entre la copia local (Room) y el modelo, por página de mensajes.
+ * DocumentSnapshot no se puede construir fuera del SDK de Firestore, así que el
+ * mapeo desde snapshots no se mide aquí.
+ */
+public class MessageMapperBenchmark {
+
+    private static final String CHAT_ID = "chat_benchmark";
+    private static final int PAGE_SIZE = 50;
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    @Test
+    public void toStoredPage() {
+        List<Message> messages = Fixtures.messages(PAGE_SIZE);
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            for (Message message : messages) {
+                MessageMapper.toStored(CHAT_ID, message);
+            }
+        }
+    }
+
+    @Test
+    public void fromStoredPage() {
+        List<StoredMessage> stored = new ArrayList<>(PAGE_SIZE);
+        for (Message message : Fixtures.messages(PAGE_SIZE)) {
+            stored.add(MessageMapper.toStored(CHAT_ID, message));
+        }
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            for (StoredMessage message : stored) {
+                MessageMapper.fromStored(message);
+            }
+        }
+    }
+}
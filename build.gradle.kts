@@ -2,5 +2,7 @@
 plugins {
     id("com.android.application") version "8.7.3" apply false
     id("com.google.gms.google-services") version "4.4.3" apply false
+    id("com.android.test") version "8.7.3" apply false
+    id("me.champeau.jmh") version "0.7.2" apply false
 
 }
\ No newline at end of file
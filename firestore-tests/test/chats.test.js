@@ -0,0 +1,117 @@
+// Documentos de chat: lectura del stream de la lista de chats, creación con ID
+// determinista y cambios que cada participante puede hacer en el resumen
+const { assertFails, assertSucceeds } = require('@firebase/rules-unit-testing');
+const {
+  collection, doc, getDoc, getDocs, query, serverTimestamp, setDoc, updateDoc, where,
+} = require('firebase/firestore');
+const {
+  ALICE, BOB, CAROL, CHAT_ID, anonymousDb, chatData, dbAs, seedChat,
+} = require('./helpers');
+
+describe('chats: lectura', () => {
+  beforeEach(() => seedChat());
+
+  it('un participante lee su chat', async () => {
+    await assertSucceeds(getDoc(doc(dbAs(ALICE), `chats/${CHAT_ID}`)));
+  });
+
+  it('alguien ajeno al chat no lo lee', async () => {
+    await assertFails(getDoc(doc(dbAs(CAROL), `chats/${CHAT_ID}`)));
+  });
+
+  it('sin sesión no se lee', async () => {
+    await assertFails(getDoc(doc(anonymousDb(), `chats/${CHAT_ID}`)));
+  });
+
+  it('el stream de la lista (array-contains propio) está permitido', async () => {
+    const db = dbAs(ALICE);
+    await assertSucceeds(getDocs(query(collection(db, 'chats'),
+        where('participants', 'array-contains', ALICE))));
+  });
+
+  it('no se puede escuchar la lista de chats de otro usuario', async () => {
+    const db = dbAs(CAROL);
+    await assertFails(getDocs(query(collection(db, 'chats'),
+        where('participants', 'array-contains', ALICE))));
+  });
+});
+
+describe('chats: creación con ID determinista', () => {
+  it('se crea con el ID "{uidMenor}_{uidMayor}"', async () => {
+    await assertSucceeds(setDoc(doc(dbAs(ALICE), `chats/${CHAT_ID}`), chatData()));
+  });
+
+  it('un ID que no sigue el orden de los participantes se rechaza', async () => {
+    await assertFails(setDoc(doc(dbAs(ALICE), `chats/${BOB}_${ALICE}`), chatData()));
+  });
+
+  it('un ID aleatorio se rechaza', async () => {
+    await assertFails(setDoc(doc(dbAs(ALICE), 'chats/abc123'), chatData()));
+  });
+
+  it('solo chats de dos participantes', async () => {
+    const data = chatData({ participants: [ALICE, BOB, CAROL] });
+    await assertFails(setDoc(doc(dbAs(ALICE), `chats/${ALICE}_${BOB}_${CAROL}`), data));
+  });
+
+  it('no se crea un chat del que no se forma parte', async () => {
+    const data = chatData({
+      participants: [BOB, CAROL],
+      participantNames: {},
+      unreadCount: {},
+    });
+    await assertFails(setDoc(doc(dbAs(ALICE), `chats/${BOB}_${CAROL}`), data));
+  });
+
+  it('get-or-create: se consulta un chat propio que aún no existe', async () => {
+    await assertSucceeds(getDoc(doc(dbAs(ALICE), `chats/${CHAT_ID}`)));
+  });
+
+  it('get-or-create: no se consulta un ID de chat ajeno', async () => {
+    await assertFails(getDoc(doc(dbAs(ALICE), `chats/${BOB}_${CAROL}`)));
+  });
+});
+
+describe('chats: onlyOwnName', () => {
+  beforeEach(() => seedChat());
+
+  it('un participante cambia su propio nombre', async () => {
+    await assertSucceeds(updateDoc(doc(dbAs(ALICE), `chats/${CHAT_ID}`),
+        { [`participantNames.${ALICE}`]: 'Alicia' }));
+  });
+
+  it('no cambia el nombre del otro participante', async () => {
+    await assertFails(updateDoc(doc(dbAs(ALICE), `chats/${CHAT_ID}`),
+        { [`participantNames.${BOB}`]: 'Roberto' }));
+  });
+
+  it('no añade nombres de quien no participa', async () => {
+    await assertFails(updateDoc(doc(dbAs(ALICE), `chats/${CHAT_ID}`),
+        { [`participantNames.${CAROL}`]: 'Carol' }));
+  });
+});
+
+describe('chats: onlyOwnReadMark', () => {
+  beforeEach(() => seedChat());
+
+  it('un participante mueve su propia marca de lectura', async () => {
+    await assertSucceeds(updateDoc(doc(dbAs(BOB), `chats/${CHAT_ID}`), {
+      [`lastReadAt.${BOB}`]: serverTimestamp(),
+      [`unreadCount.${BOB}`]: 0,
+    }));
+  });
+
+  it('no mueve la marca del otro participante', async () => {
+    await assertFails(updateDoc(doc(dbAs(BOB), `chats/${CHAT_ID}`),
+        { [`lastReadAt.${ALICE}`]: serverTimestamp() }));
+  });
+
+  it('lastReadAt debe ser un mapa', async () => {
+    await assertFails(updateDoc(doc(dbAs(BOB), `chats/${CHAT_ID}`), { lastReadAt: 'ayer' }));
+  });
+
+  it('los participantes no cambian', async () => {
+    await assertFails(updateDoc(doc(dbAs(ALICE), `chats/${CHAT_ID}`),
+        { participants: [ALICE, CAROL] }));
+  });
+});
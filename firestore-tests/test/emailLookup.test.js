@@ -0,0 +1,80 @@
+// Índice emailLookup/{email}: cada usuario solo escribe la entrada de su propio
+// email (normalizado como EmailLookupRepository.normalize) y nadie pisa la de otro
+const { assertFails, assertSucceeds } = require('@firebase/rules-unit-testing');
+const {
+  collection, deleteDoc, doc, getDoc, getDocs, setDoc,
+} = require('firebase/firestore');
+const {
+  ALICE, BOB, dbAs, anonymousDb, seed,
+} = require('./helpers');
+
+const ALICE_EMAIL = 'alice@example.com';
+const BOB_EMAIL = 'bob@example.com';
+
+describe('emailLookup: entrada propia', () => {
+  it('cada usuario indexa su propio email', async () => {
+    await assertSucceeds(setDoc(doc(dbAs(ALICE, ALICE_EMAIL), `emailLookup/${ALICE_EMAIL}`),
+        { uid: ALICE, name: 'Alice' }));
+  });
+
+  it('el ID es el email normalizado aunque el token venga con mayúsculas', async () => {
+    await assertSucceeds(setDoc(doc(dbAs(ALICE, 'Alice@Example.com'), `emailLookup/${ALICE_EMAIL}`),
+        { uid: ALICE, name: 'Alice' }));
+  });
+
+  it('no se indexa un email ajeno', async () => {
+    await assertFails(setDoc(doc(dbAs(ALICE, ALICE_EMAIL), `emailLookup/${BOB_EMAIL}`),
+        { uid: ALICE, name: 'Alice' }));
+  });
+
+  it('el uid de la entrada es el de la sesión', async () => {
+    await assertFails(setDoc(doc(dbAs(ALICE, ALICE_EMAIL), `emailLookup/${ALICE_EMAIL}`),
+        { uid: BOB, name: 'Bob' }));
+  });
+
+  it('solo uid y name', async () => {
+    await assertFails(setDoc(doc(dbAs(ALICE, ALICE_EMAIL), `emailLookup/${ALICE_EMAIL}`),
+        { uid: ALICE, name: 'Alice', admin: true }));
+  });
+
+  it('sin email en el token no se indexa nada', async () => {
+    await assertFails(setDoc(doc(dbAs(ALICE), `emailLookup/${ALICE_EMAIL}`),
+        { uid: ALICE, name: 'Alice' }));
+  });
+
+  it('no se sobrescribe la entrada de otro usuario', async () => {
+    // Por ejemplo, una cuenta anterior con ese email que sigue indexada
+    await seed(`emailLookup/${ALICE_EMAIL}`, { uid: BOB, name: 'Bob' });
+    await assertFails(setDoc(doc(dbAs(ALICE, ALICE_EMAIL), `emailLookup/${ALICE_EMAIL}`),
+        { uid: ALICE, name: 'Alice' }));
+  });
+
+  it('cada usuario actualiza y borra su entrada', async () => {
+    await seed(`emailLookup/${ALICE_EMAIL}`, { uid: ALICE, name: 'Alice' });
+    const db = dbAs(ALICE, ALICE_EMAIL);
+    await assertSucceeds(setDoc(doc(db, `emailLookup/${ALICE_EMAIL}`),
+        { uid: ALICE, name: 'Alicia' }, { merge: true }));
+    await assertSucceeds(deleteDoc(doc(db, `emailLookup/${ALICE_EMAIL}`)));
+  });
+
+  it('no se borra la entrada de otro usuario', async () => {
+    await seed(`emailLookup/${BOB_EMAIL}`, { uid: BOB, name: 'Bob' });
+    await assertFails(deleteDoc(doc(dbAs(ALICE, ALICE_EMAIL), `emailLookup/${BOB_EMAIL}`)));
+  });
+});
+
+describe('emailLookup: búsqueda', () => {
+  beforeEach(() => seed(`emailLookup/${BOB_EMAIL}`, { uid: BOB, name: 'Bob' }));
+
+  it('se busca un email concreto con una lectura', async () => {
+    await assertSucceeds(getDoc(doc(dbAs(ALICE, ALICE_EMAIL), `emailLookup/${BOB_EMAIL}`)));
+  });
+
+  it('no se puede listar el índice completo', async () => {
+    await assertFails(getDocs(collection(dbAs(ALICE, ALICE_EMAIL), 'emailLookup')));
+  });
+
+  it('sin sesión no se busca', async () => {
+    await assertFails(getDoc(doc(anonymousDb(), `emailLookup/${BOB_EMAIL}`)));
+  });
+});
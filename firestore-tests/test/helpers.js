@@ -0,0 +1,50 @@
+// Usuarios, datos de ejemplo y accesos a Firestore con o sin reglas
+const { doc, setDoc } = require('firebase/firestore');
+const { env } = require('./hooks');
+
+const ALICE = 'alice';
+const BOB = 'bob';
+const CAROL = 'carol';
+// Chats 1:1: "{uidMenor}_{uidMayor}" (DirectChatRepository)
+const CHAT_ID = `${ALICE}_${BOB}`;
+
+// Firestore con la sesión de uid; email va al token (request.auth.token.email)
+function dbAs(uid, email) {
+  return env().authenticatedContext(uid, email ? { email } : {}).firestore();
+}
+
+function anonymousDb() {
+  return env().unauthenticatedContext().firestore();
+}
+
+// Escribe datos saltándose las reglas, para preparar cada caso
+async function seed(path, data) {
+  await env().withSecurityRulesDisabled((context) => setDoc(doc(context.firestore(), path), data));
+}
+
+// Documento de chat como lo crea DirectChatRepository
+function chatData(overrides = {}) {
+  return {
+    participants: [ALICE, BOB],
+    participantNames: { [ALICE]: 'Alice', [BOB]: 'Bob' },
+    unreadCount: { [ALICE]: 0, [BOB]: 0 },
+    lastMessage: '',
+    ...overrides,
+  };
+}
+
+async function seedChat(overrides = {}) {
+  await seed(`chats/${CHAT_ID}`, chatData(overrides));
+}
+
+module.exports = {
+  ALICE,
+  BOB,
+  CAROL,
+  CHAT_ID,
+  dbAs,
+  anonymousDb,
+  seed,
+  chatData,
+  seedChat,
+};
@@ -0,0 +1,38 @@
+// Pruebas de firestore.rules contra el emulador (cd firestore-tests && npm install && npm test).
+// npm test arranca el emulador con firebase emulators:exec; necesita Java 11+.
+//
+// Un único entorno de pruebas para todos los ficheros: las reglas se cargan una
+// vez y los datos se borran después de cada prueba
+const fs = require('fs');
+const path = require('path');
+const { initializeTestEnvironment } = require('@firebase/rules-unit-testing');
+
+const PROJECT_ID = 'demo-chat-rules';
+const RULES_PATH = path.join(__dirname, '..', '..', 'firestore.rules');
+
+let testEnv;
+
+function env() {
+  return testEnv;
+}
+
+exports.env = env;
+
+exports.mochaHooks = {
+  async beforeAll() {
+    testEnv = await initializeTestEnvironment({
+      projectId: PROJECT_ID,
+      firestore: {
+        rules: fs.readFileSync(RULES_PATH, 'utf8'),
+        host: '127.0.0.1',
+        port: 8080,
+      },
+    });
+  },
+  async afterEach() {
+    await testEnv.clearFirestore();
+  },
+  async afterAll() {
+    await testEnv.cleanup();
+  },
+};
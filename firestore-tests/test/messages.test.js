@@ -0,0 +1,83 @@
+// Mensajes que publica la cola de subidas (ImageUploadWorker) y la de texto
+// (MessageOutbox): solo se crean, con el ID reservado al encolar, y no se modifican
+const { assertFails, assertSucceeds } = require('@firebase/rules-unit-testing');
+const {
+  Bytes, doc, serverTimestamp, setDoc, updateDoc,
+} = require('firebase/firestore');
+const {
+  ALICE, BOB, CAROL, CHAT_ID, dbAs, seed, seedChat,
+} = require('./helpers');
+
+// Límite de imagePreview en firestore.rules
+const MAX_PREVIEW_BYTES = 4096;
+
+function imageMessage(overrides = {}) {
+  return {
+    text: '',
+    senderId: ALICE,
+    senderName: 'Alice',
+    timestamp: serverTimestamp(),
+    type: 'image',
+    imageUrl: 'https://example.com/chat_images/alice/u1.webp',
+    thumbnailUrl: 'https://example.com/chat_images/alice/u1_thumb.webp',
+    imagePreview: Bytes.fromUint8Array(new Uint8Array(1200)),
+    ...overrides,
+  };
+}
+
+const messagePath = (messageId) => `chats/${CHAT_ID}/messages/${messageId}`;
+
+describe('messages: imágenes', () => {
+  beforeEach(() => seedChat());
+
+  it('un participante publica una imagen con su vista previa', async () => {
+    await assertSucceeds(setDoc(doc(dbAs(ALICE), messagePath('u1')), imageMessage()));
+  });
+
+  it('una vista previa de 4096 bytes cabe', async () => {
+    const preview = Bytes.fromUint8Array(new Uint8Array(MAX_PREVIEW_BYTES));
+    await assertSucceeds(setDoc(doc(dbAs(ALICE), messagePath('u1')),
+        imageMessage({ imagePreview: preview })));
+  });
+
+  it('una vista previa mayor se rechaza', async () => {
+    const preview = Bytes.fromUint8Array(new Uint8Array(MAX_PREVIEW_BYTES + 1));
+    await assertFails(setDoc(doc(dbAs(ALICE), messagePath('u1')),
+        imageMessage({ imagePreview: preview })));
+  });
+
+  it('la vista previa debe ser bytes', async () => {
+    await assertFails(setDoc(doc(dbAs(ALICE), messagePath('u1')),
+        imageMessage({ imagePreview: 'data:image/jpeg;base64,AAAA' })));
+  });
+
+  it('una imagen sin URL se rechaza', async () => {
+    await assertFails(setDoc(doc(dbAs(ALICE), messagePath('u1')), imageMessage({ imageUrl: '' })));
+  });
+
+  it('no se publica en nombre de otro', async () => {
+    await assertFails(setDoc(doc(dbAs(ALICE), messagePath('u1')), imageMessage({ senderId: BOB })));
+  });
+
+  it('alguien ajeno al chat no publica', async () => {
+    await assertFails(setDoc(doc(dbAs(CAROL), messagePath('u1')),
+        imageMessage({ senderId: CAROL, senderName: 'Carol' })));
+  });
+});
+
+describe('messages: sin modificaciones', () => {
+  beforeEach(async () => {
+    await seedChat();
+    await seed(messagePath('u1'), imageMessage({ timestamp: new Date() }));
+  });
+
+  // Un reintento que vuelve a confirmar un mensaje ya publicado se rechaza: por
+  // eso la cola lo trata como entregado si el mensaje ya existe
+  it('volver a confirmar un mensaje ya publicado se rechaza', async () => {
+    await assertFails(setDoc(doc(dbAs(ALICE), messagePath('u1')), imageMessage()));
+  });
+
+  it('un mensaje no se edita', async () => {
+    await assertFails(updateDoc(doc(dbAs(ALICE), messagePath('u1')), { text: 'editado' }));
+  });
+});
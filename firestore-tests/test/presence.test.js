@@ -0,0 +1,47 @@
+// Presencia en users/{uid}: PresenceManager escribe online/lastSeen con set+merge
+// en su propio documento y PresenceCache escucha los de los contactos por lotes
+const { assertFails, assertSucceeds } = require('@firebase/rules-unit-testing');
+const {
+  collection, doc, documentId, getDocs, query, serverTimestamp, setDoc, where,
+} = require('firebase/firestore');
+const {
+  ALICE, BOB, CAROL, anonymousDb, dbAs, seed,
+} = require('./helpers');
+
+const presence = (online) => ({ online, lastSeen: serverTimestamp() });
+
+describe('users: presencia', () => {
+  beforeEach(async () => {
+    await seed(`users/${ALICE}`, { name: 'Alice', email: 'alice@example.com' });
+    await seed(`users/${BOB}`, { name: 'Bob', email: 'bob@example.com' });
+  });
+
+  it('cada usuario marca su propia presencia', async () => {
+    await assertSucceeds(setDoc(doc(dbAs(ALICE), `users/${ALICE}`), presence(true), { merge: true }));
+    await assertSucceeds(setDoc(doc(dbAs(ALICE), `users/${ALICE}`), presence(false), { merge: true }));
+  });
+
+  it('set+merge crea el documento si aún no existe', async () => {
+    await assertSucceeds(setDoc(doc(dbAs(CAROL), `users/${CAROL}`), presence(true), { merge: true }));
+  });
+
+  it('nadie marca la presencia de otro usuario', async () => {
+    await assertFails(setDoc(doc(dbAs(ALICE), `users/${BOB}`), presence(true), { merge: true }));
+  });
+
+  it('sin sesión no se escribe presencia', async () => {
+    await assertFails(setDoc(doc(anonymousDb(), `users/${ALICE}`), presence(true), { merge: true }));
+  });
+
+  it('los contactos se leen por lotes (whereIn de IDs)', async () => {
+    const db = dbAs(ALICE);
+    await assertSucceeds(getDocs(query(collection(db, 'users'),
+        where(documentId(), 'in', [BOB, CAROL]))));
+  });
+
+  it('sin sesión no se lee la presencia', async () => {
+    const db = anonymousDb();
+    await assertFails(getDocs(query(collection(db, 'users'),
+        where(documentId(), 'in', [BOB]))));
+  });
+});
@@ -0,0 +1,64 @@
+// validUnreadCounts: contadores de no leídos desnormalizados en el chat
+// (unreadCount.{uid}), que MessageWriter incrementa en el mismo batch que el mensaje
+const { assertFails, assertSucceeds } = require('@firebase/rules-unit-testing');
+const {
+  doc, increment, serverTimestamp, updateDoc, writeBatch,
+} = require('firebase/firestore');
+const {
+  ALICE, BOB, CAROL, CHAT_ID, dbAs, seedChat,
+} = require('./helpers');
+
+describe('chats: validUnreadCounts', () => {
+  beforeEach(() => seedChat());
+
+  it('el envío incrementa el contador del destinatario junto al mensaje', async () => {
+    const db = dbAs(ALICE);
+    const batch = writeBatch(db);
+    batch.set(doc(db, `chats/${CHAT_ID}/messages/m1`), {
+      text: 'Hola',
+      senderId: ALICE,
+      senderName: 'Alice',
+      timestamp: serverTimestamp(),
+      type: 'text',
+    });
+    batch.update(doc(db, `chats/${CHAT_ID}`), {
+      lastMessage: 'Hola',
+      lastMessageSenderId: ALICE,
+      lastMessageTime: serverTimestamp(),
+      [`unreadCount.${BOB}`]: increment(1),
+    });
+    await assertSucceeds(batch.commit());
+  });
+
+  it('el lector pone a cero su propio contador', async () => {
+    await seedChat({ unreadCount: { [ALICE]: 0, [BOB]: 4 } });
+    await assertSucceeds(updateDoc(doc(dbAs(BOB), `chats/${CHAT_ID}`),
+        { [`unreadCount.${BOB}`]: 0 }));
+  });
+
+  it('un contador negativo se rechaza', async () => {
+    await assertFails(updateDoc(doc(dbAs(ALICE), `chats/${CHAT_ID}`),
+        { [`unreadCount.${BOB}`]: increment(-1) }));
+  });
+
+  it('un contador que no es entero se rechaza', async () => {
+    await assertFails(updateDoc(doc(dbAs(ALICE), `chats/${CHAT_ID}`),
+        { [`unreadCount.${BOB}`]: 'muchos' }));
+    await assertFails(updateDoc(doc(dbAs(ALICE), `chats/${CHAT_ID}`),
+        { [`unreadCount.${BOB}`]: 1.5 }));
+  });
+
+  it('no se añaden contadores de quien no participa', async () => {
+    await assertFails(updateDoc(doc(dbAs(ALICE), `chats/${CHAT_ID}`),
+        { [`unreadCount.${CAROL}`]: 1 }));
+  });
+
+  it('unreadCount debe ser un mapa', async () => {
+    await assertFails(updateDoc(doc(dbAs(ALICE), `chats/${CHAT_ID}`), { unreadCount: 3 }));
+  });
+
+  it('alguien ajeno al chat no toca los contadores', async () => {
+    await assertFails(updateDoc(doc(dbAs(CAROL), `chats/${CHAT_ID}`),
+        { [`unreadCount.${BOB}`]: increment(1) }));
+  });
+});
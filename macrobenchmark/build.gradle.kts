@@ -0,0 +1,48 @@
+plugins {
+    id("com.android.test")
+}
+
+// Macrobenchmarks de la app completa (apertura de un chat) sobre la variante
+// "benchmark" de :app. Necesita un dispositivo con una sesión iniciada y al menos
+// un chat en la lista:
+//   ./gradlew :macrobenchmark:connectedBenchmarkAndroidTest
+android {
+    namespace = "com.example.application.macrobenchmark"
+    compileSdk = 34
+
+    defaultConfig {
+        minSdk = 24
+        targetSdk = 34
+
+        testInstrumentationRunner = "androidx.test.runner.AndroidJUnitRunner"
+        testInstrumentationRunnerArguments["androidx.benchmark.suppressErrors"] = "EMULATOR"
+    }
+
+    buildTypes {
+        create("benchmark") {
+            isDebuggable = true
+            signingConfig = signingConfigs.getByName("debug")
+            matchingFallbacks += listOf("release")
+        }
+    }
+
+    targetProjectPath = ":app"
+    experimentalProperties["android.experimental.self-instrumenting"] = true
+
+    compileOptions {
+        sourceCompatibility = JavaVersion.VERSION_11
+        targetCompatibility = JavaVersion.VERSION_11
+    }
+}
+
+dependencies {
+    implementation("androidx.benchmark:benchmark-macro-junit4:1.2.4")
+    implementation("androidx.test.ext:junit:1.1.5")
+    implementation("androidx.test.uiautomator:uiautomator:2.2.0")
+}
+
+androidComponents {
+    beforeVariants(selector().all()) {
+        it.enable = it.buildType == "benchmark"
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.application.macrobenchmark;
+
+import androidx.benchmark.macro.CompilationMode;
+import androidx.benchmark.macro.ExperimentalMetricApi;
+import androidx.benchmark.macro.FrameTimingMetric;
+import androidx.benchmark.macro.MacrobenchmarkScope;
+import androidx.benchmark.macro.Metric;
+import androidx.benchmark.macro.StartupMode;
+import androidx.benchmark.macro.StartupTimingMetric;
+import androidx.benchmark.macro.TraceSectionMetric;
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.uiautomator.By;
+import androidx.test.uiautomator.BySelector;
+import androidx.test.uiautomator.UiDevice;
+import androidx.test.uiautomator.UiObject2;
+import androidx.test.uiautomator.Until;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.List;
+
+import kotlin.Unit;
+
+/**
+ * Tiempo de apertura de un chat desde la lista.
+ *
+ * - StartupTimingMetric: tiempo hasta el primer frame de ChatActivity (el sistema
+ *   registra cada lanzamiento de actividad, no solo el arranque).
+ * - "RV CreateView" / "RV OnBindView": tiempo total inflando y enlazando filas;
+ *   es lo que ahorran el pool compartido y el pre-inflado (MessageViewPool).
+ *
+ * firstOpen parte de un proceso nuevo (solo cuenta el pre-inflado); reopen abre un
+ * chat, vuelve y lo abre otra vez (las filas salen del pool). Para comparar antes
+ * y después, ejecutar en ambos commits y comparar los JSON de resultados.
+ */
+@RunWith(AndroidJUnit4.class)
+@ExperimentalMetricApi
+public class ChatOpenBenchmark {
+
+    private static final String PACKAGE_NAME = "com.example.application";
+    private static final int ITERATIONS = 10;
+    private static final long TIMEOUT = 10_000;
+
+    @Rule
+    public MacrobenchmarkRule benchmarkRule = new MacrobenchmarkRule();
+
+    @Test
+    public void firstOpen() {
+        benchmarkRule.measureRepeated(
+                PACKAGE_NAME,
+                metrics(),
+                CompilationMode.DEFAULT,
+                StartupMode.COLD,
+                ITERATIONS,
+                scope -> {
+                    showChatList(scope);
+                    return Unit.INSTANCE;
+                },
+                scope -> {
+                    openFirstChat(scope.getDevice());
+                    return Unit.INSTANCE;
+                });
+    }
+
+    @Test
+    public void reopen() {
+        benchmarkRule.measureRepeated(
+                PACKAGE_NAME,
+                metrics(),
+                CompilationMode.DEFAULT,
+                null,
+                ITERATIONS,
+                scope -> {
+                    showChatList(scope);
+                    openFirstChat(scope.getDevice());
+                    scope.getDevice().pressBack();
+                    scope.getDevice().wait(Until.hasObject(chatList()), TIMEOUT);
+                    return Unit.INSTANCE;
+                },
+                scope -> {
+                    openFirstChat(scope.getDevice());
+                    return Unit.INSTANCE;
+                });
+    }
+
+    private static List<Metric> metrics() {
+        return Arrays.asList(
+                new StartupTimingMetric(),
+                new TraceSectionMetric("RV CreateView", TraceSectionMetric.Mode.Sum),
+                new TraceSectionMetric("RV OnBindView", TraceSectionMetric.Mode.Sum),
+                new FrameTimingMetric());
+    }
+
+    // La actividad de entrada (LoginActivity) pasa a MainActivity si hay sesión
+    private static void showChatList(MacrobenchmarkScope scope) {
+        scope.pressHome();
+        scope.startActivityAndWait();
+        UiDevice device = scope.getDevice();
+        device.wait(Until.hasObject(chatList().hasChild(By.depth(1))), TIMEOUT);
+        // Dar tiempo al pre-inflado, que se lanza con la lista ya pintada
+        device.waitForIdle();
+    }
+
+    private static void openFirstChat(UiDevice device) {
+        UiObject2 list = device.findObject(chatList());
+        list.getChildren().get(0).click();
+        device.wait(Until.hasObject(By.res(PACKAGE_NAME, "messagesRecyclerView").hasChild(By.depth(1))), TIMEOUT);
+        device.waitForIdle();
+    }
+
+    private static BySelector chatList() {
+        return By.res(PACKAGE_NAME, "chatsRecyclerView");
+    }
+}
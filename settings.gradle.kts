@@ -21,3 +21,8 @@ dependencyResolutionManagement {
 
 rootProject.name = "Application"
 include(":app")
+// Microbenchmarks en dispositivo (AndroidX Benchmark) y en la JVM (JMH)
+include(":benchmark")
+include(":benchmark:jmh")
+// Macrobenchmarks de la app completa (apertura de chats)
+include(":macrobenchmark")